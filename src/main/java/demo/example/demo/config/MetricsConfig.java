@@ -0,0 +1,174 @@
+package demo.example.demo.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Metrics beyond what Actuator binds by itself, exported on /actuator/prometheus:
+ *
+ * - "repository.rows": rows materialized per repository call (tags repository,
+ *   method), next to Actuator's "spring.data.repository.invocations" timers;
+ * - "db.request.statements" / "db.request.entities": SQL statements and
+ *   entities loaded by Hibernate per HTTP request (tag uri), where an N+1
+ *   regression shows up as a jump in the statements of one route; the same
+ *   counts are held against {@link QueryBudget} when the request ends.
+ *
+ * Service timers come from @Timed (management.observations.annotations.enabled),
+ * Hibernate's own statistics from hibernate-micrometer ("hibernate.*").
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final QueryBudget queryBudget;
+
+    public MetricsConfig(MeterRegistry meterRegistry, QueryBudget queryBudget) {
+        this.meterRegistry = meterRegistry;
+        this.queryBudget = queryBudget;
+    }
+
+    // ============================================================
+    // ROWS PER REPOSITORY CALL
+    // ============================================================
+
+    @Bean
+    static BeanPostProcessor repositoryRowsMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, info) -> proxy.addAdvice(rowsCounter(
+                                    meterRegistry, info.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MethodInterceptor rowsCounter(ObjectProvider<MeterRegistry> meterRegistry, String repository) {
+        return invocation -> {
+            Object result = invocation.proceed();
+            long rows = rows(result);
+            if (rows >= 0) {
+                DistributionSummary.builder("repository.rows")
+                        .description("Rows materialized per repository call")
+                        .tags("repository", repository, "method", invocation.getMethod().getName())
+                        .register(meterRegistry.getObject())
+                        .record(rows);
+            }
+            return result;
+        };
+    }
+
+    // -1 for results that are not rows (counts, flags, void, streams)
+    static long rows(Object result) {
+        if (result == null) return 0;
+        if (result instanceof Collection<?> c) return c.size();
+        if (result instanceof Slice<?> s) return s.getNumberOfElements();
+        if (result instanceof Optional<?> o) return o.isPresent() ? 1 : 0;
+        if (result.getClass().isArray()) return Array.getLength(result);
+        if (result instanceof Number || result instanceof Boolean || result instanceof java.util.stream.BaseStream<?, ?>) {
+            return -1;
+        }
+        return 1;
+    }
+
+    // ============================================================
+    // HIBERNATE WORK PER REQUEST
+    // ============================================================
+
+    @Bean
+    HibernatePropertiesCustomizer requestStatementInspector() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryBudget);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void registerEntityLoadCounter(ApplicationReadyEvent event) {
+        event.getApplicationContext().getBeanProvider(EntityManagerFactory.class).ifAvailable(emf ->
+                emf.unwrap(SessionFactoryImplementor.class)
+                        .getServiceRegistry()
+                        .requireService(EventListenerRegistry.class)
+                        .appendListeners(EventType.POST_LOAD, queryBudget));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                // an async dispatch (streamed PDF) continues the request its first dispatch already counted
+                if (handler instanceof HandlerMethod && request.getDispatcherType() != DispatcherType.ASYNC) {
+                    request.setAttribute(RequestQueryStats.ATTRIBUTE, RequestQueryStats.begin(route(request)));
+                }
+                return true;
+            }
+
+            @Override
+            public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                                       Object handler) {
+                record();
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                        Object handler, Exception ex) {
+                record();
+            }
+        });
+    }
+
+    private static String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "UNKNOWN");
+    }
+
+    private void record() {
+        RequestQueryStats stats = RequestQueryStats.end();
+        if (stats == null) return;
+        queryBudget.check(stats);
+
+        String uri = stats.route().substring(stats.route().indexOf(' ') + 1);
+
+        DistributionSummary.builder("db.request.statements")
+                .description("SQL statements Hibernate prepared for one request")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.statements());
+        DistributionSummary.builder("db.request.entities")
+                .description("Entities Hibernate loaded for one request")
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.entitiesLoaded());
+    }
+}
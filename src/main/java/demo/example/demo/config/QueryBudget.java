@@ -0,0 +1,143 @@
+package demo.example.demo.config;
+
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Per-request SQL budget. Hibernate hands every statement it prepares to
+ * {@link #inspect} and every entity it loads to {@link #onPostLoad}; both
+ * are counted into the request's {@link RequestQueryStats}.
+ *
+ * A request over max-statements or max-entities, or preparing one statement
+ * shape (the SQL with literals and IN lists folded) more than max-repeats
+ * times, is an N+1 candidate: mode=warn logs it with the repeated shape when
+ * the request ends, mode=fail throws {@link BudgetExceededException} from the
+ * statement or load that crossed the budget. mode=off only counts.
+ */
+@Component
+public class QueryBudget implements StatementInspector, PostLoadEventListener {
+
+    // PostLoadEventListener is Serializable; the budget is never serialized
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudget.class);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final int LOGGED_SHAPE_LENGTH = 300;
+
+    public enum Mode { OFF, WARN, FAIL }
+
+    /**
+     * The request went over its budget (mode=fail).
+     */
+    public static class BudgetExceededException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private final Mode mode;
+    private final int maxStatements;
+    private final int maxEntities;
+    private final int maxRepeats;
+
+    public QueryBudget(@Value("${db.request.budget.mode:warn}") Mode mode,
+                       @Value("${db.request.budget.max-statements:50}") int maxStatements,
+                       @Value("${db.request.budget.max-entities:2000}") int maxEntities,
+                       @Value("${db.request.budget.max-repeats:10}") int maxRepeats) {
+        this.mode = mode;
+        this.maxStatements = maxStatements;
+        this.maxEntities = maxEntities;
+        this.maxRepeats = maxRepeats;
+    }
+
+    // ============================================================
+    // HIBERNATE HOOKS
+    // ============================================================
+
+    @Override
+    public String inspect(String sql) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        if (stats == null) return sql;
+
+        String shape = shape(sql);
+        long repeats = stats.statement(shape);
+        if (mode == Mode.FAIL) {
+            if (stats.statements() > maxStatements) {
+                throw new BudgetExceededException(stats.route() + " went over " + maxStatements
+                        + " statements, most repeated " + describe(stats.mostRepeated()));
+            }
+            if (repeats > maxRepeats) {
+                throw new BudgetExceededException(stats.route() + " prepared the same statement more than "
+                        + maxRepeats + " times: " + truncate(shape));
+            }
+        }
+        return sql;
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        if (stats == null) return;
+
+        long loaded = stats.entityLoaded();
+        if (mode == Mode.FAIL && loaded > maxEntities) {
+            throw new BudgetExceededException(stats.route() + " went over " + maxEntities
+                    + " entities loaded, last " + event.getEntity().getClass().getSimpleName());
+        }
+    }
+
+    // ============================================================
+    // END OF REQUEST
+    // ============================================================
+
+    /**
+     * Logs a finished request that went over its budget (mode=warn).
+     */
+    public void check(RequestQueryStats stats) {
+        if (mode != Mode.WARN) return;
+
+        Map.Entry<String, Long> repeated = stats.mostRepeated();
+        boolean over = stats.statements() > maxStatements
+                || stats.entitiesLoaded() > maxEntities
+                || (repeated != null && repeated.getValue() > maxRepeats);
+        if (over) {
+            log.warn("{} over its query budget: {} statements (max {}), {} entities loaded (max {}), most repeated {}",
+                    stats.route(), stats.statements(), maxStatements,
+                    stats.entitiesLoaded(), maxEntities, describe(repeated));
+        }
+    }
+
+    /**
+     * The statement with literals and IN lists folded, so that the same query
+     * for different rows has the same shape.
+     */
+    public static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return IN_LIST.matcher(shape).replaceAll("(?)");
+    }
+
+    private String describe(Map.Entry<String, Long> repeated) {
+        if (repeated == null) return "none";
+        return "(" + repeated.getValue() + "x, max " + maxRepeats + "): " + truncate(repeated.getKey());
+    }
+
+    private static String truncate(String shape) {
+        return shape.length() <= LOGGED_SHAPE_LENGTH ? shape : shape.substring(0, LOGGED_SHAPE_LENGTH) + "...";
+    }
+}
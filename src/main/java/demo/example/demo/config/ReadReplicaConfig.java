@@ -0,0 +1,92 @@
+package demo.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import demo.example.demo.service.ReplicaStalenessGuard;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to a read replica (db.replica.enabled=true).
+ *
+ * The application's DataSource is a {@link LazyConnectionDataSourceProxy}
+ * over a routing DataSource: a transaction only fetches its connection at its
+ * first statement, when it is known to be readOnly = true, and those are
+ * served by the replica pool (db.replica.pool.*) unless
+ * {@link ReplicaStalenessGuard} asks for the primary. Writes, and reads
+ * outside read-only transactions, use the primary pool (spring.datasource.*).
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("db.replica.pool")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.PRIMARY, primaryDataSource,
+                ReplicaRoutingDataSource.REPLICA, replicaDataSource));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Fetch a connection per transaction: with open-in-view the session would
+     * otherwise keep its first one (maybe a replica connection) for the rest
+     * of the request, writes included.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /**
+     * The replica for read-only transactions outside a staleness guard scope,
+     * the primary for everything else.
+     */
+    static class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+        static final String PRIMARY = "primary";
+        static final String REPLICA = "replica";
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            boolean replica = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    && !ReplicaStalenessGuard.primaryRequired();
+            return replica ? REPLICA : PRIMARY;
+        }
+    }
+}
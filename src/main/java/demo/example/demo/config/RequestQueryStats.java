@@ -0,0 +1,107 @@
+package demo.example.demo.config;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hibernate work done for one HTTP request: SQL statements prepared (per
+ * statement shape) and entities loaded. Bound to the request thread by
+ * MetricsConfig's interceptor and counted by {@link QueryBudget}; work the
+ * request hands to other threads (the stats page fan-out) is counted with
+ * {@link #propagate}.
+ */
+public final class RequestQueryStats {
+
+    /**
+     * Request attribute holding the request's stats, for tests and error views.
+     */
+    public static final String ATTRIBUTE = RequestQueryStats.class.getName();
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+
+    private final String route;
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong entitiesLoaded = new AtomicLong();
+    private final Map<String, AtomicLong> shapes = new ConcurrentHashMap<>();
+
+    private RequestQueryStats(String route) {
+        this.route = route;
+    }
+
+    public String route() {
+        return route;
+    }
+
+    public long statements() {
+        return statements.get();
+    }
+
+    public long entitiesLoaded() {
+        return entitiesLoaded.get();
+    }
+
+    /**
+     * The statement shape prepared most often, null if none was.
+     */
+    public Map.Entry<String, Long> mostRepeated() {
+        return shapes.entrySet().stream()
+                .max(Comparator.comparingLong(e -> e.getValue().get()))
+                .map(e -> Map.entry(e.getKey(), e.getValue().get()))
+                .orElse(null);
+    }
+
+    // returns how often this shape has been prepared in the request
+    long statement(String shape) {
+        statements.incrementAndGet();
+        return shapes.computeIfAbsent(shape, s -> new AtomicLong()).incrementAndGet();
+    }
+
+    long entityLoaded() {
+        return entitiesLoaded.incrementAndGet();
+    }
+
+    // ============================================================
+    // BINDING
+    // ============================================================
+
+    static RequestQueryStats begin(String route) {
+        RequestQueryStats stats = new RequestQueryStats(route);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static RequestQueryStats end() {
+        RequestQueryStats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats;
+    }
+
+    /**
+     * The stats of the request running on this thread, null outside requests.
+     */
+    public static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Wraps {@code task} so that, wherever it runs, it counts into the
+     * current thread's request.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        RequestQueryStats stats = CURRENT.get();
+        if (stats == null) return task;
+        return () -> {
+            RequestQueryStats previous = CURRENT.get();
+            CURRENT.set(stats);
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) CURRENT.set(previous);
+                else CURRENT.remove();
+            }
+        };
+    }
+}
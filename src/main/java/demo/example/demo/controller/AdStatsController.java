@@ -1,13 +1,13 @@
 package demo.example.demo.controller;
 
 import demo.example.demo.dto.AdGlobalStats;
-import demo.example.demo.dto.AdPerScreenStats;
 import demo.example.demo.dto.AdListDto;
+import demo.example.demo.dto.AdStatsPage;
 import demo.example.demo.entity.MediaAsset;
-import demo.example.demo.entity.Schedule;
 import demo.example.demo.repositories.MediaAssetRepository;
-import demo.example.demo.repositories.ScheduleRepository;
+import demo.example.demo.service.AdStatsPageService;
 import demo.example.demo.service.AdStatsService;
+import demo.example.demo.service.ScheduleIndex;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
@@ -17,7 +17,6 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.*;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,14 +26,17 @@ public class AdStatsController {
 
     private final MediaAssetRepository mediaAssetRepository;
     private final AdStatsService adStatsService;
-    private final ScheduleRepository scheduleRepository;
+    private final AdStatsPageService adStatsPageService;
+    private final ScheduleIndex scheduleIndex;
 
     public AdStatsController(MediaAssetRepository mediaAssetRepository,
                              AdStatsService adStatsService,
-                             ScheduleRepository scheduleRepository) {
+                             AdStatsPageService adStatsPageService,
+                             ScheduleIndex scheduleIndex) {
         this.mediaAssetRepository = mediaAssetRepository;
         this.adStatsService = adStatsService;
-        this.scheduleRepository = scheduleRepository;
+        this.adStatsPageService = adStatsPageService;
+        this.scheduleIndex = scheduleIndex;
     }
 
     // ------------------------------------------------------------
@@ -47,49 +49,29 @@ public class AdStatsController {
                           LocalDate day,
                           Model model) {
 
-        MediaAsset ad = mediaAssetRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-
         LocalDate refDay = (day != null ? day : LocalDate.now());
 
-        // EVENT-BASED LIFETIME
-        AdGlobalStats global = adStatsService.computeTotalStats(id);
-        if (global == null) {
-            global = new AdGlobalStats(
-                    id,
-                    ad.getName(),
-                    0L,
-                    0L,
-                    List.of(),
-                    null,
-                    null
-            );
-        } else {
-            global.setAdName(ad.getName());
+        // the ad and its lifetime + day / week / month stats loaded concurrently within the page's time budget
+        AdStatsPage page = adStatsPageService.load(id, refDay);
+        if (page == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        if (page.ad() == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Ad lookup took too long");
         }
 
-        // DAY
-        List<AdPerScreenStats> dayStats =
-                adStatsService.computeStatsForRange(id, refDay, refDay);
-
-        // WEEK
-        LocalDate startW = refDay.with(DayOfWeek.MONDAY);
-        LocalDate endW   = refDay.with(DayOfWeek.SUNDAY);
-        List<AdPerScreenStats> weekStats =
-                adStatsService.computeStatsForRange(id, startW, endW);
-
-        // MONTH
-        YearMonth ym = YearMonth.from(refDay);
-        List<AdPerScreenStats> monthStats =
-                adStatsService.computeStatsForRange(id, ym.atDay(1), ym.atEndOfMonth());
+        MediaAsset ad = page.ad();
 
         model.addAttribute("ad", ad);
         model.addAttribute("refDay", refDay);
 
-        model.addAttribute("global", global);
-        model.addAttribute("dayStats", dayStats);
-        model.addAttribute("weekStats", weekStats);
-        model.addAttribute("monthStats", monthStats);
+        // null when the read missed the time budget, listed in "missing"
+        model.addAttribute("global", page.global());
+        model.addAttribute("dayStats", page.dayStats());
+        model.addAttribute("weekStats", page.weekStats());
+        model.addAttribute("monthStats", page.monthStats());
+        model.addAttribute("missing", page.missing());
+        model.addAttribute("timeBudget", adStatsPageService.timeBudget());
 
         // ✅ MAKE COMPANY NAME AVAILABLE TO STATS PAGE
         model.addAttribute("companyName", ad.getCompanyname());
@@ -111,7 +93,8 @@ public class AdStatsController {
         List<AdListDto> scheduledAds = new ArrayList<>();
         List<AdListDto> expiredAds   = new ArrayList<>();
 
-        Map<Integer, AdGlobalStats> statsMap = new HashMap<>();
+        // lifetime stats for all ads in one grouped query
+        Map<Integer, AdGlobalStats> statsMap = adStatsService.computeLifetimeTotals(mediaAssets);
 
         LocalDateTime now = LocalDateTime.now();
 
@@ -119,11 +102,7 @@ public class AdStatsController {
 
             Integer id = ad.getId();
 
-            // lifetime stats
-            AdGlobalStats stats = adStatsService.computeTotalStats(id);
-            if (stats != null) {
-                statsMap.put(id, stats);
-            }
+            AdGlobalStats stats = statsMap.get(id);
 
             AdListDto dto = new AdListDto(ad);
 
@@ -134,8 +113,8 @@ public class AdStatsController {
             // ✅ NEW: include companyName in DTO
             dto.setCompanyname(ad.getCompanyname());
 
-            // status ("Active", "Scheduled", "Expired", "Inactive")
-            String status = computeAdStatus(id, now);
+            // status ("Active", "Scheduled", "Expired", "Inactive"), from the in-memory schedule index
+            String status = scheduleIndex.adStatus(id, now);
             dto.setStatus(status);
 
             allAds.add(dto);
@@ -172,50 +151,4 @@ public class AdStatsController {
         AdGlobalStats global = adStatsService.computeTotalStats(id);
         return "Ad " + id + " -> plays=" + global.getTotalPlays() + ", seconds=" + global.getTotalSeconds();
     }
-
-    // ------------------------------------------------------------
-    // Helper: compute ad status
-    // ------------------------------------------------------------
-    private String computeAdStatus(Integer adId, LocalDateTime now) {
-
-        List<Schedule> schedules = scheduleRepository.findByMediaAssetId(adId);
-
-        if (schedules == null || schedules.isEmpty()) {
-            return "Inactive";
-        }
-
-        boolean hasFuture = false;
-        boolean hasPast   = false;
-
-        LocalDate d = now.toLocalDate();
-        LocalTime t = now.toLocalTime();
-
-        for (Schedule s : schedules) {
-
-            LocalDate fd = s.getFromdate();
-            LocalDate td = s.getTodate();
-            LocalTime ft = s.getFromtime();
-            LocalTime tt = s.getTotime();
-
-            boolean dateOk =
-                    (fd == null || !d.isBefore(fd)) &&
-                            (td == null || !d.isAfter(td));
-
-            boolean timeOk =
-                    (ft == null || !t.isBefore(ft)) &&
-                            (tt == null || !t.isAfter(tt));
-
-            if (dateOk && timeOk) {
-                return "Active";
-            }
-
-            if (fd != null && fd.isAfter(d)) hasFuture = true;
-            if (td != null && td.isBefore(d)) hasPast = true;
-        }
-
-        if (hasFuture) return "Scheduled";
-        if (hasPast)   return "Expired";
-
-        return "Inactive";
-    }
 }
@@ -1,39 +1,157 @@
 package demo.example.demo.controller;
 
+import demo.example.demo.dto.BulkReportRequest;
+import demo.example.demo.dto.BulkReportStatus;
+import demo.example.demo.entity.MediaAsset;
 import demo.example.demo.service.AdReportPdfService;
+import demo.example.demo.service.BulkReportService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/ads-reports")
 public class AdStatsReportController {
 
     private final AdReportPdfService adReportPdfService;
+    private final BulkReportService bulkReportService;
 
-    public AdStatsReportController(AdReportPdfService adReportPdfService) {
+    public AdStatsReportController(AdReportPdfService adReportPdfService,
+                                   BulkReportService bulkReportService) {
         this.adReportPdfService = adReportPdfService;
+        this.bulkReportService = bulkReportService;
     }
 
     /**
      * Export PDF for an ad.
      * This always generates the LIFETIME report for that ad.
      *
+     * The stats are loaded on the request thread, the PDF itself is then
+     * written straight into the response while it is rendered.
+     *
      * Called from the stats page's "Download Report (.pdf)" button:
      *   GET /ads/{adId}/stats/export?day=...
      */
     @GetMapping("/{adId}/stats/export")
-    public ResponseEntity<byte[]> exportAdStatsPdf(@PathVariable Integer adId) {
+    public ResponseEntity<StreamingResponseBody> exportAdStatsPdf(@PathVariable Integer adId) {
 
-        byte[] pdfBytes = adReportPdfService.generateLifetimeReport(adId);
+        AdReportPdfService.ReportData report = adReportPdfService.lifetimeReport(adId);
 
         String filename = String.format("ad-%d-lifetime-report.pdf", adId);
 
+        StreamingResponseBody body = out -> adReportPdfService.writePdf(report, out);
+
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=\"" + filename + "\"")
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfBytes);
+                .body(body);
+    }
+
+    /**
+     * Export PDF for an ad, plays in [from, to] (inclusive days):
+     *   GET /ads-reports/{adId}/stats/export/range?from=2025-04-01&to=2025-04-30
+     */
+    @GetMapping("/{adId}/stats/export/range")
+    public ResponseEntity<StreamingResponseBody> exportAdRangePdf(
+            @PathVariable Integer adId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from is after to");
+        }
+
+        AdReportPdfService.ReportData report = adReportPdfService.rangeReport(adId, from, to);
+
+        String filename = String.format("ad-%d-report-%s_%s.pdf", adId, from, to);
+
+        StreamingResponseBody body = out -> adReportPdfService.writePdf(report, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
+    // ---------------------------------------------------------
+    // BULK EXPORT (ZIP of many reports)
+    // ---------------------------------------------------------
+
+    /**
+     * Starts a bulk export for all ads of a company or a list of ad ids,
+     * lifetime reports or, with from/to, range reports.
+     * Answers 202 with the job status, Location points at the status URL.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkReportStatus> startBulkExport(@RequestBody BulkReportRequest request) {
+
+        if ((request.from() == null) != (request.to() == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from and to go together");
+        }
+        if (request.from() != null && request.from().isAfter(request.to())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from is after to");
+        }
+
+        List<MediaAsset> ads = bulkReportService.resolveAds(request.companyName(), request.adIds());
+        if (ads.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No ads selected");
+        }
+        if (ads.size() > bulkReportService.maxAds()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Too many ads (" + ads.size() + "), at most " + bulkReportService.maxAds());
+        }
+
+        BulkReportService.Job job = bulkReportService.submit(ads, request.from(), request.to());
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/ads-reports/bulk/" + job.id()))
+                .body(job.status());
+    }
+
+    @GetMapping("/bulk/{jobId}")
+    public BulkReportStatus bulkExportStatus(@PathVariable String jobId) {
+        return findJob(jobId).status();
+    }
+
+    /**
+     * Streams the ZIP. Can be called while the job is still running, entries
+     * are written as their reports finish, and again until the job expires.
+     */
+    @GetMapping("/bulk/{jobId}/download")
+    public ResponseEntity<StreamingResponseBody> downloadBulkExport(@PathVariable String jobId) {
+
+        BulkReportService.Job job = findJob(jobId);
+
+        StreamingResponseBody body = out -> bulkReportService.writeZip(job, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"ad-reports-" + jobId + ".zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+
+    private BulkReportService.Job findJob(String jobId) {
+        BulkReportService.Job job = bulkReportService.find(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown bulk report " + jobId);
+        }
+        return job;
     }
 }
@@ -0,0 +1,95 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.dto.CapacityCheckRequest;
+import demo.example.demo.dto.CapacityCheckResult;
+import demo.example.demo.dto.CapacityGrid;
+import demo.example.demo.service.CapacityService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Controller
+public class CapacityController {
+
+    private static final int DEFAULT_HEATMAP_DAYS = 28;
+
+    private final CapacityService capacityService;
+
+    public CapacityController(CapacityService capacityService) {
+        this.capacityService = capacityService;
+    }
+
+    // ------------------------------------------------------------
+    // Heatmap: screens x days, colored by the busiest hour
+    // ------------------------------------------------------------
+    @GetMapping("/capacity")
+    public String heatmap(@RequestParam(required = false)
+                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                          LocalDate from,
+                          @RequestParam(required = false)
+                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                          LocalDate to,
+                          Model model) {
+
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start.plusDays(DEFAULT_HEATMAP_DAYS - 1);
+        validateRange(start, end);
+
+        CapacityGrid grid = capacityService.grid(start, end, null);
+
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            days.add(d);
+        }
+
+        model.addAttribute("grid", grid);
+        model.addAttribute("days", days);
+        return "capacity/heatmap";
+    }
+
+    // ------------------------------------------------------------
+    // API
+    // ------------------------------------------------------------
+    @GetMapping("/api/capacity")
+    @ResponseBody
+    public CapacityGrid grid(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                             @RequestParam(required = false) List<Integer> screenId) {
+        validateRange(from, to);
+        return capacityService.grid(from, to, screenId);
+    }
+
+    @PostMapping("/api/capacity/check")
+    @ResponseBody
+    public CapacityCheckResult check(@RequestBody CapacityCheckRequest request) {
+        if (request.from() == null || request.to() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from and to are required");
+        }
+        validateRange(request.from(), request.to());
+
+        if (request.playsPerDay() == null || request.playsPerDay() <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "playsPerDay must be positive");
+        }
+        if (request.fromtime() != null && request.totime() != null && !request.fromtime().isBefore(request.totime())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fromtime must be before totime");
+        }
+        return capacityService.check(request);
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from is after to");
+        }
+        if (to.toEpochDay() - from.toEpochDay() >= capacityService.maxDays()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + capacityService.maxDays() + " days per request");
+        }
+    }
+}
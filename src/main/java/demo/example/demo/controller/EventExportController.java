@@ -0,0 +1,73 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.repositories.MediaAssetRepository;
+import demo.example.demo.service.EventExportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Raw events of one ad, streamed as CSV or NDJSON:
+ *   GET /api/ads/{adId}/events?from=2025-04-01&to=2025-04-30&format=csv
+ *
+ * Rows go from the database cursor straight into the response, any range
+ * size runs in constant memory.
+ */
+@RestController
+@RequestMapping("/api/ads")
+public class EventExportController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private final EventExportService eventExportService;
+    private final MediaAssetRepository mediaAssetRepository;
+
+    public EventExportController(EventExportService eventExportService,
+                                 MediaAssetRepository mediaAssetRepository) {
+        this.eventExportService = eventExportService;
+        this.mediaAssetRepository = mediaAssetRepository;
+    }
+
+    @GetMapping("/{adId}/events")
+    public ResponseEntity<StreamingResponseBody> exportEvents(
+            @PathVariable Integer adId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+
+        EventExportService.Format f = parseFormat(format);
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from is after to");
+        }
+        if (!mediaAssetRepository.existsById(adId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown ad " + adId);
+        }
+
+        String filename = String.format("ad-%d-events-%s_%s.%s", adId, from, to, format.toLowerCase(Locale.ROOT));
+
+        StreamingResponseBody body = out -> eventExportService.export(adId, from, to, f, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + filename + "\"")
+                .contentType(f == EventExportService.Format.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static EventExportService.Format parseFormat(String format) {
+        try {
+            return EventExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or ndjson");
+        }
+    }
+}
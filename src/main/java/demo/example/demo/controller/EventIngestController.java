@@ -0,0 +1,55 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.dto.EventIngestDto;
+import demo.example.demo.dto.EventIngestResult;
+import demo.example.demo.service.EventIngestService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/events")
+public class EventIngestController {
+
+    private final EventIngestService eventIngestService;
+
+    public EventIngestController(EventIngestService eventIngestService) {
+        this.eventIngestService = eventIngestService;
+    }
+
+    /**
+     * Bulk ingest of play events from the screen players.
+     *
+     * Events are queued and written asynchronously, so 202 only means "accepted".
+     * When the write queue is full the whole request is refused with 429 and
+     * Retry-After, the player keeps its events and sends them again. A request
+     * larger than ingest.max-events-per-request could never fit the queue and
+     * is refused with 413, the player has to split it.
+     */
+    @PostMapping
+    public ResponseEntity<EventIngestResult> ingest(@RequestBody List<EventIngestDto> events)
+            throws InterruptedException {
+
+        if (events == null || events.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No events");
+        }
+        if (events.size() > eventIngestService.maxEventsPerRequest()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + eventIngestService.maxEventsPerRequest() + " events per request");
+        }
+
+        EventIngestResult result = eventIngestService.offer(events);
+
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+    }
+}
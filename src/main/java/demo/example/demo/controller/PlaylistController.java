@@ -0,0 +1,56 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.service.PlaylistService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/screens")
+public class PlaylistController {
+
+    private final PlaylistService playlistService;
+
+    public PlaylistController(PlaylistService playlistService) {
+        this.playlistService = playlistService;
+    }
+
+    /**
+     * Playlist of a screen for a day (default today), polled by the players.
+     *
+     * Served from memory. Players send the ETag back in If-None-Match and
+     * get 304 as long as nothing changed.
+     */
+    @GetMapping("/{screenUuid}/playlist")
+    public ResponseEntity<byte[]> playlist(@PathVariable UUID screenUuid,
+                                           @RequestParam(required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                           LocalDate day,
+                                           WebRequest request) {
+
+        PlaylistService.Rendered playlist =
+                playlistService.playlist(screenUuid, day != null ? day : LocalDate.now());
+
+        if (playlist == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown screen " + screenUuid);
+        }
+
+        if (request.checkNotModified(playlist.eTag())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(playlist.eTag())
+                .cacheControl(CacheControl.noCache())
+                .body(playlist.json());
+    }
+}
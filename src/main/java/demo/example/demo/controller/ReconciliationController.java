@@ -0,0 +1,44 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.dto.ScheduleDeliveryDto;
+import demo.example.demo.service.DeliveryReconciliationService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Planned versus delivered plays per schedule and day, as stored by the
+ * reconciliation job. {@code underDelivered=true} lists only the flagged days.
+ */
+@RestController
+@RequestMapping("/api/reconciliation")
+public class ReconciliationController {
+
+    private static final int MAX_DAYS = 366;
+
+    private final DeliveryReconciliationService reconciliationService;
+
+    public ReconciliationController(DeliveryReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    @GetMapping
+    public List<ScheduleDeliveryDto> deliveries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer adId,
+            @RequestParam(defaultValue = "false") boolean underDelivered) {
+
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from is after to");
+        }
+        if (to.toEpochDay() - from.toEpochDay() >= MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_DAYS + " days per request");
+        }
+        return reconciliationService.deliveries(from, to, adId, underDelivered);
+    }
+}
@@ -0,0 +1,176 @@
+package demo.example.demo.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import demo.example.demo.dto.AdStatsDto;
+import demo.example.demo.dto.StatsPeriod;
+import demo.example.demo.service.AdStatsService;
+import demo.example.demo.service.StatsChangeTracker;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Daily / weekly / monthly stats per (ad, screen) for BI tools.
+ *
+ * Responses are JSON lines (one AdStatsDto per line), ordered by adId, screenId.
+ * A full page comes with a Link rel="next" header carrying the keyset cursor
+ * ("after=adId.screenId", screenId -1 for events without screen).
+ * Closed periods (all days in the past) get ETag + Last-Modified, pollers
+ * sending If-None-Match / If-Modified-Since get 304 without the query running.
+ */
+@RestController
+@RequestMapping("/api/stats")
+public class StatsApiController {
+
+    private static final int DEFAULT_LIMIT = 1000;
+    private static final int MAX_LIMIT = 10000;
+
+    private final AdStatsService adStatsService;
+    private final StatsChangeTracker changeTracker;
+    private final ObjectWriter rowWriter;
+
+    public StatsApiController(AdStatsService adStatsService,
+                              StatsChangeTracker changeTracker,
+                              ObjectMapper objectMapper) {
+        this.adStatsService = adStatsService;
+        this.changeTracker = changeTracker;
+        this.rowWriter = objectMapper.writerFor(AdStatsDto.class);
+    }
+
+    @GetMapping("/daily")
+    public ResponseEntity<StreamingResponseBody> daily(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day,
+            @RequestParam(required = false) Long screenId,
+            @RequestParam(required = false) String apiKey,
+            @RequestParam(required = false) Long adId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            WebRequest request) {
+        return stats(StatsPeriod.day(day), screenId, apiKey, adId, after, limit, request);
+    }
+
+    // any day of the week, weeks start on Monday
+    @GetMapping("/weekly")
+    public ResponseEntity<StreamingResponseBody> weekly(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day,
+            @RequestParam(required = false) Long screenId,
+            @RequestParam(required = false) String apiKey,
+            @RequestParam(required = false) Long adId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            WebRequest request) {
+        return stats(StatsPeriod.week(day), screenId, apiKey, adId, after, limit, request);
+    }
+
+    // month as yyyy-MM
+    @GetMapping("/monthly")
+    public ResponseEntity<StreamingResponseBody> monthly(
+            @RequestParam YearMonth month,
+            @RequestParam(required = false) Long screenId,
+            @RequestParam(required = false) String apiKey,
+            @RequestParam(required = false) Long adId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            WebRequest request) {
+        return stats(StatsPeriod.month(month), screenId, apiKey, adId, after, limit, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stats(StatsPeriod period,
+                                                        Long screenId,
+                                                        String apiKey,
+                                                        Long adId,
+                                                        String after,
+                                                        int limit,
+                                                        WebRequest request) {
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be 1.." + MAX_LIMIT);
+        }
+        AdStatsDto afterRow = parseCursor(after);
+
+        // closed period: answer from the validators, before touching the database
+        String eTag = null;
+        Instant lastModified = null;
+        if (period.isClosed(changeTracker.today())) {
+            lastModified = changeTracker.lastModified(period.fromDay(), period.toDay());
+            eTag = eTag(period, screenId, apiKey, adId, afterRow, limit, lastModified);
+            if (request.checkNotModified(eTag, lastModified.toEpochMilli())) {
+                return null;
+            }
+        }
+
+        List<AdStatsDto> rows = adStatsService.getStatsPage(period, screenId, apiKey, adId, afterRow, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON);
+
+        if (eTag != null) {
+            response.eTag(eTag).lastModified(lastModified);
+        } else {
+            response.cacheControl(CacheControl.noCache());
+        }
+
+        if (rows.size() == limit) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", cursor(rows.get(rows.size() - 1)))
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+
+        StreamingResponseBody body = out -> {
+            for (AdStatsDto row : rows) {
+                out.write(rowWriter.writeValueAsBytes(row));
+                out.write('\n');
+            }
+        };
+
+        return response.body(body);
+    }
+
+    // ---------------------------------------------------------
+    // HELPERS
+    // ---------------------------------------------------------
+
+    private static String cursor(AdStatsDto row) {
+        return row.adId() + "." + (row.screenId() != null ? row.screenId() : -1L);
+    }
+
+    private static AdStatsDto parseCursor(String after) {
+        if (after == null || after.isBlank()) return null;
+
+        int dot = after.indexOf('.');
+        try {
+            long adId = Long.parseLong(after.substring(0, dot));
+            long screenId = Long.parseLong(after.substring(dot + 1));
+            return new AdStatsDto(adId, screenId >= 0 ? screenId : null, 0L, 0L);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + after);
+        }
+    }
+
+    private static String eTag(StatsPeriod period, Long screenId, String apiKey, Long adId,
+                               AdStatsDto after, int limit, Instant lastModified) {
+        String key = period.fromDay() + "|" + period.toDay()
+                + "|" + screenId + "|" + apiKey + "|" + adId
+                + "|" + (after != null ? cursor(after) : "") + "|" + limit
+                + "|" + lastModified.toEpochMilli();
+        return "\"" + DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
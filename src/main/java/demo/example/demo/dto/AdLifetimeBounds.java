@@ -0,0 +1,12 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * First and last play day of an ad (null when it never played).
+ * Header data of the range report, see AdStatsService.computeLifetimeBounds.
+ */
+public record AdLifetimeBounds(
+        LocalDate lifetimeFrom,
+        LocalDate lifetimeTo
+) {}
@@ -0,0 +1,25 @@
+package demo.example.demo.dto;
+
+import demo.example.demo.entity.MediaAsset;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The ad stats page as loaded within its time budget. Parts that did not make
+ * it are null and named in missing: "ad", or "stats" for the lifetime and the
+ * day / week / month windows, which are read together.
+ */
+public record AdStatsPage(
+        MediaAsset ad,
+        LocalDate refDay,
+        AdGlobalStats global,
+        List<AdPerScreenStats> dayStats,
+        List<AdPerScreenStats> weekStats,
+        List<AdPerScreenStats> monthStats,
+        List<String> missing
+) {
+    public boolean complete() {
+        return missing.isEmpty();
+    }
+}
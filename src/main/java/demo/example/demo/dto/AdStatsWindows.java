@@ -0,0 +1,16 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Everything the ad stats page shows, computed in one pass:
+ * lifetime stats plus per-screen stats for the day, week and month of refDay.
+ */
+public record AdStatsWindows(
+        LocalDate refDay,
+        AdGlobalStats global,
+        List<AdPerScreenStats> dayStats,
+        List<AdPerScreenStats> weekStats,
+        List<AdPerScreenStats> monthStats
+) {}
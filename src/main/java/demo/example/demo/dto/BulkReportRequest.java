@@ -0,0 +1,15 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Body of POST /ads-reports/bulk. Either all ads of a company or an explicit
+ * list of ad ids. Without from/to every ad gets its lifetime report.
+ */
+public record BulkReportRequest(
+        String companyName,
+        List<Integer> adIds,
+        LocalDate from,
+        LocalDate to
+) {}
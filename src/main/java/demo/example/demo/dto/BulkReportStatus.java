@@ -0,0 +1,16 @@
+package demo.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Progress of a bulk report job, returned by GET /ads-reports/bulk/{jobId}.
+ * state is RUNNING until every report was rendered (or failed), then DONE.
+ */
+public record BulkReportStatus(
+        String jobId,
+        String state,
+        int total,
+        int completed,
+        int failed,
+        List<String> errors
+) {}
@@ -0,0 +1,21 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Body of POST /api/capacity/check: a booking to try on the existing schedules.
+ * Without screenIds all active screens are checked; the ad length is adSeconds,
+ * else the duration of mediaAssetId. fromtime/totime null = opening hours.
+ */
+public record CapacityCheckRequest(
+        List<Integer> screenIds,
+        LocalDate from,
+        LocalDate to,
+        LocalTime fromtime,
+        LocalTime totime,
+        Double playsPerDay,
+        Integer mediaAssetId,
+        Double adSeconds
+) {}
@@ -0,0 +1,15 @@
+package demo.example.demo.dto;
+
+import java.util.List;
+
+/**
+ * Answer of a capacity check. conflictCount counts every (screen, day) that
+ * would be overbooked; conflicts lists the first of them, worst hour each.
+ */
+public record CapacityCheckResult(
+        boolean fits,
+        long requestedSecondsPerDay,
+        int screensChecked,
+        int conflictCount,
+        List<CapacityConflict> conflicts
+) {}
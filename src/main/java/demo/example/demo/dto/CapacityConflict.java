@@ -0,0 +1,15 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * An hour of a screen that the booking would overbook (seconds within that hour).
+ */
+public record CapacityConflict(
+        Integer screenId,
+        LocalDate day,
+        int hour,
+        long bookedSeconds,
+        long requestedSeconds,
+        long availableSeconds
+) {}
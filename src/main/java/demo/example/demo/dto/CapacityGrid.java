@@ -0,0 +1,15 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Booked airtime of screens over [from, to], one array slot per day.
+ * availableSecondsPerDay is the airtime of an active screen (opening hours).
+ */
+public record CapacityGrid(
+        LocalDate from,
+        LocalDate to,
+        long availableSecondsPerDay,
+        List<ScreenCapacity> screens
+) {}
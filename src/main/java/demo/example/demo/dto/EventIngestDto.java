@@ -0,0 +1,15 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One play event as sent by a screen player to POST /api/events.
+ */
+public record EventIngestDto(
+        UUID screenUuid,
+        Integer mediaAssetId,
+        LocalDateTime start,
+        LocalDateTime end,
+        String key
+) {}
@@ -0,0 +1,10 @@
+package demo.example.demo.dto;
+
+/**
+ * Response of POST /api/events: how many events were queued and how many
+ * were rejected (missing fields, unknown screen or ad).
+ */
+public record EventIngestResult(
+        int accepted,
+        int rejected
+) {}
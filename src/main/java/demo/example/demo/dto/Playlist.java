@@ -0,0 +1,15 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * What a screen plays on one day, served to the players by PlaylistService.
+ * totalSeconds = sum of duration * playsPerDay over the items.
+ */
+public record Playlist(
+        Integer screenId,
+        LocalDate day,
+        List<PlaylistItem> items,
+        long totalSeconds
+) {}
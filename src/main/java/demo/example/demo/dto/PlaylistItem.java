@@ -0,0 +1,24 @@
+package demo.example.demo.dto;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * One media asset of a playlist. Several schedules of the same asset on the
+ * same screen and day are merged: playsPerDay is their sum, windows lists
+ * their fromtime/totime (null = open).
+ */
+public record PlaylistItem(
+        Integer mediaAssetId,
+        String name,
+        String url,
+        String filename,
+        String mimetype,
+        Integer ordernr,
+        Double duration,
+        double playsPerDay,
+        List<Window> windows
+) {
+
+    public record Window(LocalTime from, LocalTime to) {}
+}
@@ -0,0 +1,16 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One "EventLog" row as exported, without the entity's associations.
+ */
+public record RawEvent(
+        long id,
+        LocalDateTime start,
+        LocalDateTime end,
+        String key,
+        Integer screenId,
+        Integer mediaAssetId,
+        LocalDateTime createdTs
+) {}
@@ -0,0 +1,20 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+
+/**
+ * One "ScheduleDelivery" row: planned versus delivered plays of a schedule on a day.
+ * underDelivered is only set once the day is closed.
+ */
+public record ScheduleDeliveryDto(
+        Integer scheduleId,
+        LocalDate day,
+        Integer mediaAssetId,
+        Integer screenId,
+        double plannedPlays,
+        double plannedSeconds,
+        long deliveredPlays,
+        long deliveredSeconds,
+        boolean closed,
+        boolean underDelivered
+) {}
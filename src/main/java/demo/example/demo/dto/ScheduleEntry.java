@@ -0,0 +1,30 @@
+package demo.example.demo.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One "Schedule" row as kept by ScheduleIndex. Null dates / times mean "open".
+ * The time window does not wrap around midnight (fromtime <= t <= totime).
+ */
+public record ScheduleEntry(
+        Integer id,
+        Integer screenId,
+        Integer mediaAssetId,
+        LocalDate fromdate,
+        LocalDate todate,
+        LocalTime fromtime,
+        LocalTime totime,
+        Double duration
+) {
+
+    public boolean coversDay(LocalDate day) {
+        return (fromdate == null || !day.isBefore(fromdate))
+                && (todate == null || !day.isAfter(todate));
+    }
+
+    public boolean coversTime(LocalTime time) {
+        return (fromtime == null || !time.isBefore(fromtime))
+                && (totime == null || !time.isAfter(totime));
+    }
+}
@@ -0,0 +1,14 @@
+package demo.example.demo.dto;
+
+/**
+ * One screen of a CapacityGrid. bookedSeconds[i] is the load of day from + i,
+ * peakPercent[i] the load of that day's busiest hour relative to the hour's airtime
+ * (above 100 = overbooked).
+ */
+public record ScreenCapacity(
+        Integer screenId,
+        String name,
+        boolean active,
+        long[] bookedSeconds,
+        int[] peakPercent
+) {}
@@ -0,0 +1,32 @@
+package demo.example.demo.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Days [fromDay, toDay) of a daily / weekly (Monday based) / monthly stats query.
+ */
+public record StatsPeriod(
+        LocalDate fromDay,
+        LocalDate toDay
+) {
+
+    public static StatsPeriod day(LocalDate day) {
+        return new StatsPeriod(day, day.plusDays(1));
+    }
+
+    public static StatsPeriod week(LocalDate anyDayInWeek) {
+        LocalDate monday = anyDayInWeek.with(DayOfWeek.MONDAY);
+        return new StatsPeriod(monday, monday.plusWeeks(1));
+    }
+
+    public static StatsPeriod month(YearMonth month) {
+        return new StatsPeriod(month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    // no day of the period is today or later
+    public boolean isClosed(LocalDate today) {
+        return !toDay.isAfter(today);
+    }
+}
@@ -0,0 +1,79 @@
+package demo.example.demo.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One rollup bucket of "EventLog" rows: totals per (ad, screen, day, key).
+ * Maintained by EventLogRollupService, read through EventLogDailyRepository.
+ */
+@Entity
+@Table(name = "\"EventLogDaily\"")
+public class EventLogDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "mediaassetid", nullable = false)
+    private Integer mediaAssetId;
+
+    @Column(name = "screenid")
+    private Integer screenId;
+
+    // start date of the events, NULL for events without a start
+    @Column(name = "playday")
+    private LocalDate day;
+
+    @Column(name = "\"key\"")
+    private String key;
+
+    @Column(name = "plays", nullable = false)
+    private long plays;
+
+    // truncated per event and clamped at 0 (same as AdStatsService)
+    @Column(name = "seconds", nullable = false)
+    private long seconds;
+
+    // raw sum of (end - start), as the old getStatsNative returned it
+    @Column(name = "epoch_seconds", nullable = false)
+    private double epochSeconds;
+
+    @Column(name = "first_start", columnDefinition = "timestamp without time zone")
+    private LocalDateTime firstStart;
+
+    @Column(name = "last_end", columnDefinition = "timestamp without time zone")
+    private LocalDateTime lastEnd;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Integer getMediaAssetId() { return mediaAssetId; }
+    public void setMediaAssetId(Integer mediaAssetId) { this.mediaAssetId = mediaAssetId; }
+
+    public Integer getScreenId() { return screenId; }
+    public void setScreenId(Integer screenId) { this.screenId = screenId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public long getPlays() { return plays; }
+    public void setPlays(long plays) { this.plays = plays; }
+
+    public long getSeconds() { return seconds; }
+    public void setSeconds(long seconds) { this.seconds = seconds; }
+
+    public double getEpochSeconds() { return epochSeconds; }
+    public void setEpochSeconds(double epochSeconds) { this.epochSeconds = epochSeconds; }
+
+    public LocalDateTime getFirstStart() { return firstStart; }
+    public void setFirstStart(LocalDateTime firstStart) { this.firstStart = firstStart; }
+
+    public LocalDateTime getLastEnd() { return lastEnd; }
+    public void setLastEnd(LocalDateTime lastEnd) { this.lastEnd = lastEnd; }
+}
@@ -0,0 +1,288 @@
+package demo.example.demo.repositories;
+
+import demo.example.demo.entity.EventLogDaily;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stats reads on the daily rollup. Every query adds the "tail" of raw
+ * "EventLog" rows above the rollup high-water mark, so results are exact
+ * even between two refreshes while only the tail is scanned event by event.
+ *
+ * Range predicates on "EventLog" compare the bare "start" column with bound
+ * timestamps (never CAST("start" AS DATE) or similar), so on the monthly
+ * partitioned table only the partitions of the range are read.
+ *
+ * Read-only transactions, so the reads can be served by the read replica.
+ */
+@Transactional(readOnly = true)
+public interface EventLogDailyRepository extends JpaRepository<EventLogDaily, Long> {
+
+    // Lifetime stats for one ad, per screen.
+    // all_rows counts every event (also without start), plays only the ones with a start.
+    // screen_id is NULL for events without a screen, they only count towards the totals.
+    @Query(value = """
+        SELECT
+            u.screen_id AS screen_id,
+            s.name      AS screen_name,
+            SUM(u.all_rows)    AS all_rows,
+            SUM(u.plays)       AS plays,
+            SUM(u.seconds)     AS seconds,
+            MIN(u.first_start) AS first_start,
+            MAX(u.last_end)    AS last_end
+        FROM (
+            SELECT d.screenid AS screen_id,
+                   d.plays    AS all_rows,
+                   CASE WHEN d.playday IS NULL THEN 0 ELSE d.plays END AS plays,
+                   d.seconds  AS seconds,
+                   d.first_start AS first_start,
+                   d.last_end    AS last_end
+            FROM "EventLogDaily" d
+            WHERE d.mediaassetid = :mediaAssetId
+            UNION ALL
+            SELECT e.screenid,
+                   1,
+                   CASE WHEN e."start" IS NULL THEN 0 ELSE 1 END,
+                   COALESCE(GREATEST(FLOOR(EXTRACT(EPOCH FROM (COALESCE(e."end",e."start") - e."start"))), 0), 0),
+                   e."start",
+                   CASE WHEN e."start" IS NOT NULL THEN COALESCE(e."end",e."start") END
+            FROM "EventLog" e
+            WHERE e.mediaassetid = :mediaAssetId
+              AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+        ) u
+        LEFT JOIN "Screen" s ON s.id = u.screen_id
+        GROUP BY u.screen_id, s.name
+        """, nativeQuery = true)
+    List<Object[]> getLifetimePerScreen(@Param("mediaAssetId") Long mediaAssetId);
+
+    // Lifetime + day/week/month per screen for one ad in a single pass
+    // (conditional aggregation over the same rows, ad stats page)
+    @Query(value = """
+        SELECT
+            u.screen_id AS screen_id,
+            s.name      AS screen_name,
+            SUM(u.all_rows)    AS all_rows,
+            SUM(u.plays)       AS plays,
+            SUM(u.seconds)     AS seconds,
+            MIN(u.first_start) AS first_start,
+            MAX(u.last_end)    AS last_end,
+            SUM(CASE WHEN u.play_day = :day THEN u.plays   ELSE 0 END) AS day_plays,
+            SUM(CASE WHEN u.play_day = :day THEN u.seconds ELSE 0 END) AS day_seconds,
+            SUM(CASE WHEN u.play_day BETWEEN :weekFrom AND :weekTo THEN u.plays   ELSE 0 END) AS week_plays,
+            SUM(CASE WHEN u.play_day BETWEEN :weekFrom AND :weekTo THEN u.seconds ELSE 0 END) AS week_seconds,
+            SUM(CASE WHEN u.play_day BETWEEN :monthFrom AND :monthTo THEN u.plays   ELSE 0 END) AS month_plays,
+            SUM(CASE WHEN u.play_day BETWEEN :monthFrom AND :monthTo THEN u.seconds ELSE 0 END) AS month_seconds
+        FROM (
+            SELECT d.screenid AS screen_id,
+                   d.playday  AS play_day,
+                   d.plays    AS all_rows,
+                   CASE WHEN d.playday IS NULL THEN 0 ELSE d.plays END AS plays,
+                   d.seconds  AS seconds,
+                   d.first_start AS first_start,
+                   d.last_end    AS last_end
+            FROM "EventLogDaily" d
+            WHERE d.mediaassetid = :mediaAssetId
+            UNION ALL
+            SELECT e.screenid,
+                   CAST(e."start" AS DATE),
+                   1,
+                   CASE WHEN e."start" IS NULL THEN 0 ELSE 1 END,
+                   COALESCE(GREATEST(FLOOR(EXTRACT(EPOCH FROM (COALESCE(e."end",e."start") - e."start"))), 0), 0),
+                   e."start",
+                   CASE WHEN e."start" IS NOT NULL THEN COALESCE(e."end",e."start") END
+            FROM "EventLog" e
+            WHERE e.mediaassetid = :mediaAssetId
+              AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+        ) u
+        LEFT JOIN "Screen" s ON s.id = u.screen_id
+        GROUP BY u.screen_id, s.name
+        """, nativeQuery = true)
+    List<Object[]> getWindowsPerScreen(@Param("mediaAssetId") Long mediaAssetId,
+                                       @Param("day") LocalDate day,
+                                       @Param("weekFrom") LocalDate weekFrom,
+                                       @Param("weekTo") LocalDate weekTo,
+                                       @Param("monthFrom") LocalDate monthFrom,
+                                       @Param("monthTo") LocalDate monthTo);
+
+    // Lifetime totals for ALL ads (ads list page)
+    @Query(value = """
+        SELECT
+            u.ad_id AS ad_id,
+            SUM(u.plays)       AS plays,
+            SUM(u.seconds)     AS seconds,
+            MIN(u.first_start) AS first_start,
+            MAX(u.last_end)    AS last_end
+        FROM (
+            SELECT d.mediaassetid AS ad_id,
+                   d.plays        AS plays,
+                   d.seconds      AS seconds,
+                   d.first_start  AS first_start,
+                   d.last_end     AS last_end
+            FROM "EventLogDaily" d
+            UNION ALL
+            SELECT e.mediaassetid,
+                   1,
+                   COALESCE(GREATEST(FLOOR(EXTRACT(EPOCH FROM (COALESCE(e."end",e."start") - e."start"))), 0), 0),
+                   e."start",
+                   CASE WHEN e."start" IS NOT NULL THEN COALESCE(e."end",e."start") END
+            FROM "EventLog" e
+            WHERE e.mediaassetid IS NOT NULL
+              AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+        ) u
+        GROUP BY u.ad_id
+        """, nativeQuery = true)
+    List<Object[]> getLifetimeTotals();
+
+    // Lifetime bounds of one ad: first start, last end (one row, both NULL without plays).
+    // Reads the per-ad summary row instead of the ad's whole history.
+    @Query(value = """
+        SELECT
+            MIN(u.first_start) AS first_start,
+            MAX(u.last_end)    AS last_end
+        FROM (
+            SELECT a.first_start AS first_start,
+                   a.last_end    AS last_end
+            FROM "EventLogAdSummary" a
+            WHERE a.mediaassetid = :mediaAssetId
+            UNION ALL
+            SELECT e."start",
+                   CASE WHEN e."start" IS NOT NULL THEN COALESCE(e."end",e."start") END
+            FROM "EventLog" e
+            WHERE e.mediaassetid = :mediaAssetId
+              AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+        ) u
+        """, nativeQuery = true)
+    List<Object[]> getLifetimeBounds(@Param("mediaAssetId") Long mediaAssetId);
+
+    // Per-screen stats for one ad, events starting in [fromDay, toDay] (inclusive days)
+    @Query(value = """
+        SELECT
+            u.screen_id AS screen_id,
+            s.name      AS screen_name,
+            SUM(u.plays)   AS plays,
+            SUM(u.seconds) AS seconds
+        FROM (
+            SELECT d.screenid AS screen_id,
+                   d.plays    AS plays,
+                   d.seconds  AS seconds
+            FROM "EventLogDaily" d
+            WHERE d.mediaassetid = :mediaAssetId
+              AND d.playday >= :fromDay
+              AND d.playday <= :toDay
+            UNION ALL
+            SELECT e.screenid,
+                   1,
+                   GREATEST(FLOOR(EXTRACT(EPOCH FROM (COALESCE(e."end",e."start") - e."start"))), 0)
+            FROM "EventLog" e
+            WHERE e.mediaassetid = :mediaAssetId
+              AND e."start" >= :from
+              AND e."start" <  :to
+              AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+        ) u
+        LEFT JOIN "Screen" s ON s.id = u.screen_id
+        WHERE u.screen_id IS NOT NULL
+        GROUP BY u.screen_id, s.name
+        """, nativeQuery = true)
+    List<Object[]> getRangePerScreen(@Param("mediaAssetId") Long mediaAssetId,
+                                     @Param("fromDay") LocalDate fromDay,
+                                     @Param("toDay") LocalDate toDay,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
+
+    // Rows of (ad_id, screen_id, seconds, plays), days in [fromDay, toDay)
+    @Query(value = """
+        SELECT
+            u.ad_id     AS ad_id,
+            u.screen_id AS screen_id,
+            SUM(u.seconds) AS seconds,
+            SUM(u.plays)   AS plays
+        FROM (
+            SELECT d.mediaassetid  AS ad_id,
+                   d.screenid      AS screen_id,
+                   d.epoch_seconds AS seconds,
+                   d.plays         AS plays
+            FROM "EventLogDaily" d
+            WHERE d.playday >= :fromDay
+              AND d.playday <  :toDay
+              AND (:screenId IS NULL OR d.screenid = :screenId)
+              AND (:apiKey   IS NULL OR d."key" = :apiKey)
+            UNION ALL
+            SELECT e.mediaassetid,
+                   e.screenid,
+                   EXTRACT(EPOCH FROM (COALESCE(e."end",e."start") - e."start")),
+                   1
+            FROM "EventLog" e
+            WHERE e."start" >= :from
+              AND e."start" <  :to
+              AND e.mediaassetid IS NOT NULL
+              AND (:screenId IS NULL OR e.screenid = :screenId)
+              AND (:apiKey   IS NULL OR e."key" = :apiKey)
+              AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+        ) u
+        GROUP BY u.ad_id, u.screen_id
+        """, nativeQuery = true)
+    List<Object[]> getStats(@Param("fromDay") LocalDate fromDay,
+                            @Param("toDay") LocalDate toDay,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to,
+                            @Param("screenId") Long screenId,
+                            @Param("apiKey") String apiKey);
+
+    // getStats with an ad filter, one keyset page: rows after (afterAdId, afterScreenId)
+    // in (ad_id, screen_id) order, screen_id NULL sorts as -1
+    @Query(value = """
+        SELECT
+            u.ad_id     AS ad_id,
+            u.screen_id AS screen_id,
+            SUM(u.seconds) AS seconds,
+            SUM(u.plays)   AS plays
+        FROM (
+            SELECT d.mediaassetid  AS ad_id,
+                   d.screenid      AS screen_id,
+                   d.epoch_seconds AS seconds,
+                   d.plays         AS plays
+            FROM "EventLogDaily" d
+            WHERE d.playday >= :fromDay
+              AND d.playday <  :toDay
+              AND (:screenId IS NULL OR d.screenid = :screenId)
+              AND (:apiKey   IS NULL OR d."key" = :apiKey)
+              AND (:adId     IS NULL OR d.mediaassetid = :adId)
+              AND (d.mediaassetid > :afterAdId
+                   OR (d.mediaassetid = :afterAdId AND COALESCE(d.screenid, -1) > :afterScreenId))
+            UNION ALL
+            SELECT e.mediaassetid,
+                   e.screenid,
+                   EXTRACT(EPOCH FROM (COALESCE(e."end",e."start") - e."start")),
+                   1
+            FROM "EventLog" e
+            WHERE e."start" >= :from
+              AND e."start" <  :to
+              AND e.mediaassetid IS NOT NULL
+              AND (:screenId IS NULL OR e.screenid = :screenId)
+              AND (:apiKey   IS NULL OR e."key" = :apiKey)
+              AND (:adId     IS NULL OR e.mediaassetid = :adId)
+              AND (e.mediaassetid > :afterAdId
+                   OR (e.mediaassetid = :afterAdId AND COALESCE(e.screenid, -1) > :afterScreenId))
+              AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+        ) u
+        GROUP BY u.ad_id, u.screen_id
+        ORDER BY u.ad_id, COALESCE(u.screen_id, -1)
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Object[]> getStatsPage(@Param("fromDay") LocalDate fromDay,
+                                @Param("toDay") LocalDate toDay,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to,
+                                @Param("screenId") Long screenId,
+                                @Param("apiKey") String apiKey,
+                                @Param("adId") Long adId,
+                                @Param("afterAdId") long afterAdId,
+                                @Param("afterScreenId") long afterScreenId,
+                                @Param("limit") int limit);
+}
@@ -4,4 +4,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import demo.example.demo.entity.MediaAsset;
 
-public interface MediaAssetRepository extends JpaRepository<MediaAsset, Integer> {}
\ No newline at end of file
+import java.util.List;
+
+public interface MediaAssetRepository extends JpaRepository<MediaAsset, Integer> {
+
+    List<MediaAsset> findByCompanynameIgnoreCaseOrderById(String companyname);
+}
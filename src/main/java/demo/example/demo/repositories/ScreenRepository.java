@@ -3,11 +3,18 @@ package demo.example.demo.repositories;
 import demo.example.demo.entity.Screen;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 public interface ScreenRepository extends JpaRepository<Screen, Integer> {
 
     @Query(value = "SELECT * FROM \"Screen\" ORDER BY id", nativeQuery = true)
     List<Screen> findAllReal();
+
+    // Players identify themselves by uuid (event ingestion)
+    @Query("SELECT s.id FROM Screen s WHERE s.uuid = :uuid")
+    Optional<Integer> findIdByUuid(@Param("uuid") UUID uuid);
 }
@@ -3,15 +3,19 @@ package demo.example.demo.service;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
 import demo.example.demo.dto.AdGlobalStats;
+import demo.example.demo.dto.AdLifetimeBounds;
 import demo.example.demo.dto.AdPerScreenStats;
 import demo.example.demo.entity.MediaAsset;
 import demo.example.demo.repositories.MediaAssetRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.NumberFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -26,27 +30,70 @@ public class AdReportPdfService {
 
     private static final DateTimeFormatter DATE_FMT =
             DateTimeFormatter.ofPattern("dd.MM.yyyy");
-    private static final NumberFormat INT_FMT =
-            NumberFormat.getIntegerInstance(new Locale("sq", "AL"));
+    // NumberFormat is not thread safe, reports are rendered concurrently (bulk export)
+    private static final ThreadLocal<NumberFormat> INT_FMT =
+            ThreadLocal.withInitial(() -> NumberFormat.getIntegerInstance(new Locale("sq", "AL")));
 
     private static final String LOGO_PATH = "/reports/company-logo.png";
 
+    private static final int TABLE_FLUSH_ROWS = 200;
+
+    // FONTS + COLORS: never modified after creation, shared by all documents
+    private static final Color HEADER_BG = new Color(23, 42, 15);
+
+    private static final Font TITLE_FONT = new Font(Font.HELVETICA, 16, Font.BOLD);
+    private static final Font SUBTITLE_FONT = new Font(Font.HELVETICA, 12, Font.NORMAL);
+    private static final Font LABEL_FONT = new Font(Font.HELVETICA, 11, Font.BOLD);
+    private static final Font VALUE_FONT = new Font(Font.HELVETICA, 11, Font.NORMAL);
+    private static final Font HEADER_FONT = new Font(Font.HELVETICA, 10, Font.BOLD, new Color(255, 255, 255));
+    private static final Font CELL_FONT = new Font(Font.HELVETICA, 9);
+
+    // decoded once, every document gets its own copy of the Image (Image.getInstance(Image))
+    private final Image logo;
+
+    private final Timer buildTimer;
+
     public AdReportPdfService(AdStatsService adStatsService,
-                              MediaAssetRepository mediaAssetRepository) {
+                              MediaAssetRepository mediaAssetRepository,
+                              MeterRegistry meterRegistry) {
         this.adStatsService = adStatsService;
         this.mediaAssetRepository = mediaAssetRepository;
+        this.buildTimer = Timer.builder("ad.report.pdf.build")
+                .description("Time to render one PDF report (buildPdf), writing included")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.logo = tryLoadLogo();
     }
 
+    /**
+     * Everything that goes into one report. Collected up front (database work),
+     * rendered later by {@link #writePdf} (no database access).
+     */
+    public record ReportData(Integer adId,
+                             String adName,
+                             String companyName,
+                             LocalDate activeFrom,
+                             LocalDate activeTo,
+                             long totalPlays,
+                             long totalSeconds,
+                             List<AdPerScreenStats> perScreen,
+                             LocalDate reportFrom,
+                             LocalDate reportTo) {}
+
     // ---------------------------------------------------------
     // LIFETIME REPORT
     // ---------------------------------------------------------
     public byte[] generateLifetimeReport(Integer adId) {
+        return toBytes(lifetimeReport(adId));
+    }
+
+    public ReportData lifetimeReport(Integer adId) {
         AdGlobalStats stats = adStatsService.computeTotalStats(adId);
 
         LocalDate activeFrom = stats.getLifetimeFrom();
         LocalDate activeTo   = stats.getLifetimeTo();
 
-        return buildPdf(
+        return new ReportData(
                 adId,
                 stats.getAdName(),
                 stats.getCompanyname(),    // NEW FIELD
@@ -64,6 +111,10 @@ public class AdReportPdfService {
     // RANGE REPORT
     // ---------------------------------------------------------
     public byte[] generateRangeReport(Integer adId, LocalDate from, LocalDate to) {
+        return toBytes(rangeReport(adId, from, to));
+    }
+
+    public ReportData rangeReport(Integer adId, LocalDate from, LocalDate to) {
 
         List<AdPerScreenStats> perScreenRange =
                 adStatsService.computeStatsForRange(adId, from, to);
@@ -76,14 +127,16 @@ public class AdReportPdfService {
                 .mapToLong(AdPerScreenStats::getTotalSeconds)
                 .sum();
 
-        AdGlobalStats lifetimeStats = adStatsService.computeTotalStats(adId);
+        // header only: name/company + lifetime bounds, no lifetime aggregation
+        MediaAsset ad = mediaAssetRepository.findById(adId).orElse(null);
+        AdLifetimeBounds lifetime = adStatsService.computeLifetimeBounds(adId);
 
-        return buildPdf(
+        return new ReportData(
                 adId,
-                lifetimeStats.getAdName(),
-                lifetimeStats.getCompanyname(),   // NEW FIELD
-                lifetimeStats.getLifetimeFrom(),
-                lifetimeStats.getLifetimeTo(),
+                ad != null ? ad.getName() : null,
+                ad != null ? ad.getCompanyname() : null,   // NEW FIELD
+                lifetime.lifetimeFrom(),
+                lifetime.lifetimeTo(),
                 totalPlaysRange,
                 totalSecondsRange,
                 perScreenRange,
@@ -95,32 +148,52 @@ public class AdReportPdfService {
     // ---------------------------------------------------------
     // PDF BUILDER
     // ---------------------------------------------------------
-    private byte[] buildPdf(Integer adId,
-                            String adName,
-                            String companyName,     // NEW FIELD
-                            LocalDate activeFrom,
-                            LocalDate activeTo,
-                            long totalPlays,
-                            long totalSeconds,
-                            List<AdPerScreenStats> perScreen,
-                            LocalDate reportFrom,
-                            LocalDate reportTo) {
+    private byte[] toBytes(ReportData report) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writePdf(report, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Renders the report straight into {@code out}: pages are written as soon
+     * as they are full, the per-screen table is flushed every TABLE_FLUSH_ROWS rows.
+     * {@code out} is not closed.
+     */
+    public void writePdf(ReportData report, OutputStream out) {
+        buildTimer.record(() -> buildPdf(
+                report.adId(),
+                report.adName(),
+                report.companyName(),
+                report.activeFrom(),
+                report.activeTo(),
+                report.totalPlays(),
+                report.totalSeconds(),
+                report.perScreen(),
+                report.reportFrom(),
+                report.reportTo(),
+                out
+        ));
+    }
+
+    private void buildPdf(Integer adId,
+                          String adName,
+                          String companyName,     // NEW FIELD
+                          LocalDate activeFrom,
+                          LocalDate activeTo,
+                          long totalPlays,
+                          long totalSeconds,
+                          List<AdPerScreenStats> perScreen,
+                          LocalDate reportFrom,
+                          LocalDate reportTo,
+                          OutputStream out) {
 
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
             Document document = new Document(PageSize.A4, 40, 40, 40, 40);
-            PdfWriter writer = PdfWriter.getInstance(document, baos);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false); // the caller owns the stream
 
             document.open();
 
-            // FONTS
-            Font titleFont = new Font(Font.HELVETICA, 16, Font.BOLD);
-            Font subtitleFont = new Font(Font.HELVETICA, 12, Font.NORMAL);
-            Font labelFont = new Font(Font.HELVETICA, 11, Font.BOLD);
-            Font valueFont = new Font(Font.HELVETICA, 11, Font.NORMAL);
-            Font headerFont = new Font(Font.HELVETICA, 10, Font.BOLD, new Color(255,255,255));
-            Font cellFont = new Font(Font.HELVETICA, 9);
-
             // --------------------------------------------------
             // HEADER (LOGO + TITLE)
             // --------------------------------------------------
@@ -131,20 +204,18 @@ public class AdReportPdfService {
             PdfPCell logoCell = new PdfPCell();
             logoCell.setBorder(Rectangle.NO_BORDER);
 
-            Image logo = tryLoadLogo();
             if (logo != null) {
-                logo.scaleToFit(80, 40);
-                logoCell.addElement(logo);
+                logoCell.addElement(Image.getInstance(logo));
             }
             header.addCell(logoCell);
 
             PdfPCell textCell = new PdfPCell();
             textCell.setBorder(Rectangle.NO_BORDER);
 
-            textCell.addElement(new Paragraph("Ad Performance Report", titleFont));
-            textCell.addElement(new Paragraph(adName, subtitleFont));
+            textCell.addElement(new Paragraph("Ad Performance Report", TITLE_FONT));
+            textCell.addElement(new Paragraph(adName, SUBTITLE_FONT));
             if (companyName != null && !companyName.isBlank()) {
-                textCell.addElement(new Paragraph("Company: " + companyName, subtitleFont));
+                textCell.addElement(new Paragraph("Company: " + companyName, SUBTITLE_FONT));
             }
 
             header.addCell(textCell);
@@ -158,25 +229,25 @@ public class AdReportPdfService {
             summary.setWidthPercentage(100);
             summary.setWidths(new float[]{1.2f, 4f});
 
-            addSummaryRow(summary, "Ad ID", adId.toString(), labelFont, valueFont);
-            addSummaryRow(summary, "Ad name", adName, labelFont, valueFont);
-            addSummaryRow(summary, "Company", (companyName != null ? companyName : "-"), labelFont, valueFont);
+            addSummaryRow(summary, "Ad ID", adId.toString(), LABEL_FONT, VALUE_FONT);
+            addSummaryRow(summary, "Ad name", adName, LABEL_FONT, VALUE_FONT);
+            addSummaryRow(summary, "Company", (companyName != null ? companyName : "-"), LABEL_FONT, VALUE_FONT);
 
             if (activeFrom != null && activeTo != null) {
                 addSummaryRow(summary, "Lifetime", DATE_FMT.format(activeFrom) + " - " + DATE_FMT.format(activeTo),
-                        labelFont, valueFont);
+                        LABEL_FONT, VALUE_FONT);
             } else {
-                addSummaryRow(summary, "Lifetime", "-", labelFont, valueFont);
+                addSummaryRow(summary, "Lifetime", "-", LABEL_FONT, VALUE_FONT);
             }
 
             if (reportFrom != null && reportTo != null) {
                 addSummaryRow(summary, "Report range",
                         DATE_FMT.format(reportFrom) + " - " + DATE_FMT.format(reportTo),
-                        labelFont, valueFont);
+                        LABEL_FONT, VALUE_FONT);
             }
 
-            addSummaryRow(summary, "Total plays", INT_FMT.format(totalPlays), labelFont, valueFont);
-            addSummaryRow(summary, "Total seconds", INT_FMT.format(totalSeconds), labelFont, valueFont);
+            addSummaryRow(summary, "Total plays", INT_FMT.get().format(totalPlays), LABEL_FONT, VALUE_FONT);
+            addSummaryRow(summary, "Total seconds", INT_FMT.get().format(totalSeconds), LABEL_FONT, VALUE_FONT);
 
             summary.setSpacingAfter(15);
             document.add(summary);
@@ -187,14 +258,15 @@ public class AdReportPdfService {
             if (perScreen != null && !perScreen.isEmpty()) {
 
                 PdfPTable table = new PdfPTable(5);
+                table.setComplete(false); // large table: rows already added get written out
                 table.setWidthPercentage(100);
                 table.setWidths(new float[]{0.7f, 3f, 1.3f, 1.3f, 1.3f});
 
-                addHeader(table, "#", headerFont);
-                addHeader(table, "Screen", headerFont);
-                addHeader(table, "Plays", headerFont);
-                addHeader(table, "Seconds", headerFont);
-                addHeader(table, "Sec/play", headerFont);
+                addHeader(table, "#", HEADER_FONT);
+                addHeader(table, "Screen", HEADER_FONT);
+                addHeader(table, "Plays", HEADER_FONT);
+                addHeader(table, "Seconds", HEADER_FONT);
+                addHeader(table, "Sec/play", HEADER_FONT);
 
                 int i = 1;
                 for (AdPerScreenStats row : perScreen) {
@@ -207,21 +279,25 @@ public class AdReportPdfService {
                     long secs = row.getTotalSeconds();
                     String sp = (plays > 0) ? String.valueOf(secs / plays) : "-";
 
-                    addCell(table, String.valueOf(i++), cellFont);
-                    addCell(table, screenName, cellFont);
-                    addCell(table, INT_FMT.format(plays), cellFont);
-                    addCell(table, INT_FMT.format(secs), cellFont);
-                    addCell(table, sp, cellFont);
+                    addCell(table, String.valueOf(i++), CELL_FONT);
+                    addCell(table, screenName, CELL_FONT);
+                    addCell(table, INT_FMT.get().format(plays), CELL_FONT);
+                    addCell(table, INT_FMT.get().format(secs), CELL_FONT);
+                    addCell(table, sp, CELL_FONT);
+
+                    if (i % TABLE_FLUSH_ROWS == 0) {
+                        document.add(table);
+                    }
                 }
 
+                table.setComplete(true);
                 document.add(table);
             } else {
-                document.add(new Paragraph("No plays recorded.", valueFont));
+                document.add(new Paragraph("No plays recorded.", VALUE_FONT));
             }
 
             document.close();
             writer.close();
-            return baos.toByteArray();
 
         } catch (Exception e) {
             throw new RuntimeException("PDF generation failed", e);
@@ -232,14 +308,25 @@ public class AdReportPdfService {
     // HELPERS
     // ---------------------------------------------------------
     private Image tryLoadLogo() {
-        try (InputStream in = getClass().getResourceAsStream(LOGO_PATH)) {
-            if (in == null) return null;
-            return Image.getInstance(in.readAllBytes());
+        byte[] bytes = tryLoadResource(LOGO_PATH);
+        if (bytes == null) return null;
+        try {
+            Image image = Image.getInstance(bytes);
+            image.scaleToFit(80, 40);
+            return image;
         } catch (Exception e) {
             return null;
         }
     }
 
+    private byte[] tryLoadResource(String path) {
+        try (InputStream in = getClass().getResourceAsStream(path)) {
+            return in != null ? in.readAllBytes() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     private void addSummaryRow(PdfPTable table, String label, String value, Font labelFont, Font valueFont) {
         PdfPCell l = new PdfPCell(new Phrase(label + ":", labelFont));
         l.setBorder(Rectangle.NO_BORDER);
@@ -254,7 +341,7 @@ public class AdReportPdfService {
     private void addHeader(PdfPTable table, String text, Font font) {
         PdfPCell cell = new PdfPCell(new Phrase(text, font));
         cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-        cell.setBackgroundColor(new Color(23, 42, 15));
+        cell.setBackgroundColor(HEADER_BG);
         cell.setPadding(5);
         table.addCell(cell);
     }
@@ -0,0 +1,143 @@
+package demo.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import demo.example.demo.dto.AdGlobalStats;
+import demo.example.demo.dto.AdStatsWindows;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache for AdStatsService results, keyed by ad id and date window.
+ *
+ * Windows that ended before today only change when late events arrive and
+ * expire after closed-window-ttl. Windows that include today, or whose end is
+ * unknown, expire after open-window-ttl. All entries of an ad are dropped on
+ * {@link EventLogAppendedEvent}, which also bumps the ad's generation: a load
+ * that started before the append read the old rows and is not kept. That
+ * event is local to the instance that wrote or folded the events, so on the
+ * other instances late events show once closed-window-ttl has passed.
+ * Hit/miss counts are exported as the "adStats" cache metrics.
+ */
+@Component
+public class AdStatsCache {
+
+    public enum Kind { LIFETIME, RANGE, WINDOWS }
+
+    public record Key(Kind kind, int adId, LocalDate from, LocalDate to) {
+
+        public static Key lifetime(int adId) {
+            return new Key(Kind.LIFETIME, adId, null, null);
+        }
+
+        public static Key range(int adId, LocalDate from, LocalDate to) {
+            return new Key(Kind.RANGE, adId, from, to);
+        }
+
+        public static Key windows(int adId, LocalDate refDay) {
+            return new Key(Kind.WINDOWS, adId, refDay, refDay);
+        }
+    }
+
+    private final boolean enabled;
+    private final long openWindowTtlNanos;
+    private final long closedWindowTtlNanos;
+    private final Cache<Key, Object> cache;
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public AdStatsCache(MeterRegistry meterRegistry,
+                        @Value("${stats.cache.enabled:true}") boolean enabled,
+                        @Value("${stats.cache.maximum-size:10000}") long maximumSize,
+                        @Value("${stats.cache.open-window-ttl:30s}") Duration openWindowTtl,
+                        @Value("${stats.cache.closed-window-ttl:10m}") Duration closedWindowTtl) {
+        this.enabled = enabled;
+        this.openWindowTtlNanos = openWindowTtl.toNanos();
+        this.closedWindowTtlNanos = closedWindowTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new WindowExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "adStats");
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader) {
+        if (!enabled) return loader.get();
+
+        long generation = generation(key.adId()).get();
+        T value = (T) cache.get(key, k -> loader.get());
+        if (generation(key.adId()).get() != generation) {
+            // events arrived while this was loading, it may predate them
+            cache.asMap().remove(key, value);
+        }
+        return value;
+    }
+
+    private AtomicLong generation(int adId) {
+        return generations.computeIfAbsent(adId, id -> new AtomicLong());
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @EventListener
+    public void onEventsAppended(EventLogAppendedEvent event) {
+        if (event.adIds().isEmpty()) return;
+        event.adIds().forEach(adId -> generation(adId).incrementAndGet());
+        cache.asMap().keySet().removeIf(k -> event.adIds().contains(k.adId()));
+    }
+
+    // ============================================================
+    // EXPIRY: open windows get the short TTL, closed ones the long one
+    // ============================================================
+
+    private long expireAfterWrite(Key key, Object value) {
+        LocalDate end = switch (key.kind()) {
+            case RANGE -> key.to();
+            case LIFETIME -> ((AdGlobalStats) value).getLifetimeTo();
+            case WINDOWS -> {
+                LocalDate lifetimeTo = ((AdStatsWindows) value).global().getLifetimeTo();
+                LocalDate monthEnd = YearMonth.from(key.from()).atEndOfMonth();
+                yield (lifetimeTo == null || lifetimeTo.isAfter(monthEnd)) ? lifetimeTo : monthEnd;
+            }
+        };
+
+        // no event yet (end unknown): the first play can come any minute
+        if (end == null || !end.isBefore(LocalDate.now())) {
+            return openWindowTtlNanos;
+        }
+        return closedWindowTtlNanos;
+    }
+
+    private class WindowExpiry implements Expiry<Key, Object> {
+
+        @Override
+        public long expireAfterCreate(Key key, Object value, long currentTime) {
+            return expireAfterWrite(key, value);
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, Object value, long currentTime, long currentDuration) {
+            return expireAfterWrite(key, value);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
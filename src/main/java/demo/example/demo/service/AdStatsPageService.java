@@ -0,0 +1,173 @@
+package demo.example.demo.service;
+
+import demo.example.demo.config.RequestQueryStats;
+import demo.example.demo.dto.AdStatsPage;
+import demo.example.demo.dto.AdStatsWindows;
+import demo.example.demo.entity.MediaAsset;
+import demo.example.demo.repositories.MediaAssetRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Loads the ad stats page: the ad, then its lifetime stats together with the
+ * per-screen stats of the day, week and month of refDay (one windows query,
+ * handed the ad so it is not read twice). The stats are one part: when they
+ * are late, lifetime, day, week and month are left out together.
+ *
+ * The reads run on a bounded pool (page-threads workers), each in its own
+ * read-only transaction, the windows read as soon as the ad is in. Both share
+ * one time budget per request; a read that misses it is left out of the page
+ * and keeps running, its result lands in the stats cache for the next
+ * request. A read the full pool refuses is left out right away, the request
+ * thread never runs one.
+ */
+@Service
+public class AdStatsPageService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdStatsPageService.class);
+
+    private final AdStatsService adStatsService;
+    private final MediaAssetRepository mediaAssetRepository;
+    private final QueryLimiter queryLimiter;
+    private final TransactionTemplate readOnlyTx;
+    private final Duration timeBudget;
+
+    private final ThreadPoolExecutor executor;
+
+    public AdStatsPageService(AdStatsService adStatsService,
+                              MediaAssetRepository mediaAssetRepository,
+                              QueryLimiter queryLimiter,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${stats.page.threads:8}") int threads,
+                              @Value("${stats.page.queue-capacity:200}") int queueCapacity,
+                              @Value("${stats.page.time-budget:3s}") Duration timeBudget) {
+        this.adStatsService = adStatsService;
+        this.mediaAssetRepository = mediaAssetRepository;
+        this.queryLimiter = queryLimiter;
+        this.timeBudget = timeBudget;
+
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+
+        AtomicInteger threadNr = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "stats-page-" + threadNr.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ============================================================
+    // PAGE
+    // ============================================================
+
+    /**
+     * The page of ad {@code adId} for {@code refDay}, null when the ad does not exist.
+     */
+    public AdStatsPage load(Integer adId, LocalDate refDay) {
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+
+        CompletableFuture<Optional<MediaAsset>> ad =
+                read(QueryLimiter.Kind.CHEAP, () -> mediaAssetRepository.findById(adId));
+        // unknown ad: no windows read
+        CompletableFuture<AdStatsWindows> windows = ad.thenCompose(found -> found
+                .map(a -> read(QueryLimiter.Kind.HEAVY, () -> adStatsService.computeStatsWindows(a, refDay)))
+                .orElseGet(() -> CompletableFuture.completedFuture(null)));
+
+        List<String> missing = new ArrayList<>();
+
+        Optional<MediaAsset> asset = await(ad, deadline, "ad", missing);
+        if (asset != null && asset.isEmpty()) {
+            return null;
+        }
+
+        AdStatsWindows stats = await(windows, deadline, "stats", missing);
+
+        AdStatsPage page = new AdStatsPage(
+                asset != null ? asset.get() : null,
+                refDay,
+                stats != null ? stats.global() : null,
+                stats != null ? stats.dayStats() : null,
+                stats != null ? stats.weekStats() : null,
+                stats != null ? stats.monthStats() : null,
+                List.copyOf(missing));
+
+        if (!page.complete()) {
+            log.warn("Stats page of ad {} ({}) without {}: over the {} budget or no free worker",
+                    adId, refDay, missing, timeBudget);
+        }
+        return page;
+    }
+
+    public Duration timeBudget() {
+        return timeBudget;
+    }
+
+    // ============================================================
+    // HELPERS
+    // ============================================================
+
+    // the permit is taken before the transaction opens, reads inside pass through;
+    // their statements count towards the request. A refused read fails with RejectedExecutionException
+    private <T> CompletableFuture<T> read(QueryLimiter.Kind kind, Supplier<T> query) {
+        try {
+            return CompletableFuture.supplyAsync(RequestQueryStats.propagate(
+                    () -> queryLimiter.call(kind, () -> readOnlyTx.execute(tx -> query.get()))), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // the read's result, or null (and name added to missing) when the budget ran out first
+    // or the pool refused the read
+    private static <T> T await(CompletableFuture<T> future, long deadline, String name, List<String> missing) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            missing.add(name);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            missing.add(name);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                missing.add(name);
+                return null;
+            }
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
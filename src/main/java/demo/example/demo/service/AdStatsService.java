@@ -1,31 +1,47 @@
 package demo.example.demo.service;
 
 import demo.example.demo.dto.AdGlobalStats;
+import demo.example.demo.dto.AdLifetimeBounds;
 import demo.example.demo.dto.AdPerScreenStats;
 import demo.example.demo.dto.AdStatsDto;
-import demo.example.demo.entity.EventLog;
+import demo.example.demo.dto.AdStatsWindows;
+import demo.example.demo.dto.StatsPeriod;
 import demo.example.demo.entity.MediaAsset;
-import demo.example.demo.entity.Screen;
-import demo.example.demo.repositories.EventLogRepository;
+import demo.example.demo.repositories.EventLogDailyRepository;
 import demo.example.demo.repositories.MediaAssetRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.util.*;
 
+// one timer per public method ("ad.stats", tags class / method), cache hits included
 @Service
+@Timed(value = "ad.stats", histogram = true)
 public class AdStatsService {
 
-    private final EventLogRepository eventLogRepository;
+    // all reads go through the daily rollup (+ the not yet rolled up tail)
+    private final EventLogDailyRepository eventLogDailyRepository;
     private final MediaAssetRepository mediaAssetRepository;
-
-    public AdStatsService(EventLogRepository eventLogRepository,
-                          MediaAssetRepository mediaAssetRepository) {
-        this.eventLogRepository = eventLogRepository;
+    private final AdStatsCache statsCache;
+    // per-screen and period reads are HEAVY, lookups and summary reads CHEAP
+    private final QueryLimiter queryLimiter;
+    // closed windows may come from the read replica, open ones from the primary
+    private final ReplicaStalenessGuard stalenessGuard;
+
+    public AdStatsService(EventLogDailyRepository eventLogDailyRepository,
+                          MediaAssetRepository mediaAssetRepository,
+                          AdStatsCache statsCache,
+                          QueryLimiter queryLimiter,
+                          ReplicaStalenessGuard stalenessGuard) {
+        this.eventLogDailyRepository = eventLogDailyRepository;
         this.mediaAssetRepository = mediaAssetRepository;
+        this.statsCache = statsCache;
+        this.queryLimiter = queryLimiter;
+        this.stalenessGuard = stalenessGuard;
     }
 
     // ============================================================
@@ -36,7 +52,7 @@ public class AdStatsService {
         List<AdStatsDto> list = new ArrayList<>();
         for (Object[] r : rows) {
             Long adId    = ((Number) r[0]).longValue();
-            Long scrId   = ((Number) r[1]).longValue();
+            Long scrId   = r[1] != null ? ((Number) r[1]).longValue() : null; // events without screen
             Long seconds = r[2] != null ? ((Number) r[2]).longValue() : 0L;
             Long plays   = r[3] != null ? ((Number) r[3]).longValue() : 0L;
 
@@ -46,26 +62,46 @@ public class AdStatsService {
     }
 
     // ============================================================
-    // DAILY / WEEKLY / MONTHLY STATS (native query)
+    // DAILY / WEEKLY / MONTHLY STATS (daily rollup)
     // ============================================================
 
     public List<AdStatsDto> getDailyStats(LocalDate day, Long screenId, String apiKey) {
-        LocalDateTime from = day.atStartOfDay();
-        LocalDateTime to   = day.plusDays(1).atStartOfDay();
-        return convertNativeRows(eventLogRepository.getStatsNative(from, to, screenId, apiKey));
+        return getStats(StatsPeriod.day(day), screenId, apiKey);
     }
 
     public List<AdStatsDto> getWeeklyStats(LocalDate anyDayInWeek, Long screenId, String apiKey) {
-        LocalDate monday = anyDayInWeek.with(java.time.DayOfWeek.MONDAY);
-        LocalDateTime from = monday.atStartOfDay();
-        LocalDateTime to   = monday.plusWeeks(1).atStartOfDay();
-        return convertNativeRows(eventLogRepository.getStatsNative(from, to, screenId, apiKey));
+        return getStats(StatsPeriod.week(anyDayInWeek), screenId, apiKey);
     }
 
     public List<AdStatsDto> getMonthlyStats(YearMonth month, Long screenId, String apiKey) {
-        LocalDateTime from = month.atDay(1).atStartOfDay();
-        LocalDateTime to   = month.plusMonths(1).atDay(1).atStartOfDay();
-        return convertNativeRows(eventLogRepository.getStatsNative(from, to, screenId, apiKey));
+        return getStats(StatsPeriod.month(month), screenId, apiKey);
+    }
+
+    private List<AdStatsDto> getStats(StatsPeriod period, Long screenId, String apiKey) {
+        return convertNativeRows(queryLimiter.heavy(() -> stalenessGuard.forDays(period.toDay(), () ->
+                eventLogDailyRepository.getStats(
+                        period.fromDay(), period.toDay(),
+                        period.fromDay().atStartOfDay(), period.toDay().atStartOfDay(),
+                        screenId, apiKey))));
+    }
+
+    /**
+     * One keyset page of the period's (ad, screen) rows, ordered by adId, screenId
+     * (events without screen sort first within an ad). after is the last row of
+     * the previous page, null for the first page.
+     */
+    public List<AdStatsDto> getStatsPage(StatsPeriod period, Long screenId, String apiKey, Long adId,
+                                         AdStatsDto after, int limit) {
+
+        // first page: ad ids are positive
+        long afterAdId = after != null ? after.adId() : -1L;
+        long afterScreenId = after != null && after.screenId() != null ? after.screenId() : -1L;
+
+        return convertNativeRows(queryLimiter.heavy(() -> stalenessGuard.forDays(period.toDay(), () ->
+                eventLogDailyRepository.getStatsPage(
+                        period.fromDay(), period.toDay(),
+                        period.fromDay().atStartOfDay(), period.toDay().atStartOfDay(),
+                        screenId, apiKey, adId, afterAdId, afterScreenId, limit))));
     }
 
     // ============================================================
@@ -74,82 +110,130 @@ public class AdStatsService {
     // ============================================================
 
     public AdGlobalStats computeTotalStats(Integer adId) {
+        // lifetime includes the newest events: primary, also for a caller's enclosing transaction
+        return statsCache.get(AdStatsCache.Key.lifetime(adId),
+                () -> stalenessGuard.onPrimary(() -> loadTotalStats(adId)));
+    }
+
+    private AdGlobalStats loadTotalStats(Integer adId) {
 
         Long mediaAssetId = adId.longValue();
 
         // Fetch MediaAsset → for adName + companyName
-        MediaAsset asset = mediaAssetRepository.findById(adId)
+        MediaAsset asset = queryLimiter.cheap(() -> mediaAssetRepository.findById(adId))
                 .orElse(null);
 
         String adName = (asset != null ? asset.getName() : null);
         String companyName = (asset != null ? asset.getCompanyname() : null);
 
-        List<EventLog> logs = eventLogRepository.findByMediaAssetId(mediaAssetId);
+        // one row per screen, aggregated in the database
+        List<Object[]> rows = queryLimiter.heavy(() -> eventLogDailyRepository.getLifetimePerScreen(mediaAssetId));
 
-        if (logs.isEmpty()) {
-            AdGlobalStats empty = new AdGlobalStats(adId, adName, 0, 0, List.of(), null, null);
-            empty.setCompanyname(companyName);
-            return empty;
-        }
+        return toGlobalStats(adId, adName, companyName, rows);
+    }
 
-        long totalPlays = logs.size();
-        long totalSeconds = 0L;
+    // ============================================================
+    // STATS PAGE: LIFETIME + DAY / WEEK / MONTH IN ONE QUERY
+    // ============================================================
+
+    // the caller has loaded the ad already (stats page), its name and company go into the lifetime
+    public AdStatsWindows computeStatsWindows(MediaAsset ad, LocalDate refDay) {
+        // the windows include the lifetime, which includes the newest events: primary
+        return statsCache.get(AdStatsCache.Key.windows(ad.getId(), refDay),
+                () -> stalenessGuard.onPrimary(() -> loadStatsWindows(ad, refDay)));
+    }
+
+    private AdStatsWindows loadStatsWindows(MediaAsset ad, LocalDate refDay) {
+
+        Integer adId = ad.getId();
+        LocalDate weekFrom = refDay.with(DayOfWeek.MONDAY);
+        LocalDate weekTo   = refDay.with(DayOfWeek.SUNDAY);
+        YearMonth ym = YearMonth.from(refDay);
 
-        Map<Integer, ScreenAgg> aggMap = new HashMap<>();
-        LocalDate lifetimeFrom = null;
-        LocalDate lifetimeTo   = null;
+        List<Object[]> rows = queryLimiter.heavy(() -> eventLogDailyRepository.getWindowsPerScreen(
+                adId.longValue(), refDay, weekFrom, weekTo, ym.atDay(1), ym.atEndOfMonth()));
 
-        for (EventLog log : logs) {
+        AdGlobalStats global = toGlobalStats(adId, ad.getName(), ad.getCompanyname(), rows);
 
-            LocalDateTime start = log.getStart();
-            if (start == null) continue;
+        List<AdPerScreenStats> dayStats   = new ArrayList<>();
+        List<AdPerScreenStats> weekStats  = new ArrayList<>();
+        List<AdPerScreenStats> monthStats = new ArrayList<>();
 
-            LocalDateTime end = (log.getEnd() != null ? log.getEnd() : start);
+        for (Object[] r : rows) {
+            if (r[0] == null) continue;
 
-            long duration = Duration.between(start, end).getSeconds();
-            if (duration < 0) duration = 0;
+            Integer scrId = ((Number) r[0]).intValue();
+            String  sname = screenName(scrId, (String) r[1]);
 
-            totalSeconds += duration;
+            addWindow(dayStats,   scrId, sname, r[7],  r[8]);
+            addWindow(weekStats,  scrId, sname, r[9],  r[10]);
+            addWindow(monthStats, scrId, sname, r[11], r[12]);
+        }
 
-            LocalDate s = start.toLocalDate();
-            LocalDate e = end.toLocalDate();
+        dayStats.sort(Comparator.comparingLong(AdPerScreenStats::getTotalSeconds).reversed());
+        weekStats.sort(Comparator.comparingLong(AdPerScreenStats::getTotalSeconds).reversed());
+        monthStats.sort(Comparator.comparingLong(AdPerScreenStats::getTotalSeconds).reversed());
 
-            if (lifetimeFrom == null || s.isBefore(lifetimeFrom)) lifetimeFrom = s;
-            if (lifetimeTo   == null || e.isAfter(lifetimeTo))    lifetimeTo   = e;
+        return new AdStatsWindows(refDay, global, dayStats, weekStats, monthStats);
+    }
 
-            Screen screen = log.getScreen();
-            if (screen == null) continue;
+    private static void addWindow(List<AdPerScreenStats> window, Integer scrId, String sname,
+                                  Object plays, Object seconds) {
+        long p = plays != null ? ((Number) plays).longValue() : 0L;
+        if (p == 0) return; // no play of this screen in the window
 
-            Integer scrId = screen.getId();
-            String screenName = screen.getName();
+        long sec = seconds != null ? ((Number) seconds).longValue() : 0L;
+        window.add(new AdPerScreenStats(scrId, sname, p, sec));
+    }
 
-            ScreenAgg agg = aggMap.computeIfAbsent(scrId, id -> {
-                ScreenAgg a = new ScreenAgg();
-                a.name = screenName;
-                return a;
-            });
+    // rows start with: screen_id, screen_name, all_rows, plays, seconds, first_start, last_end
+    private AdGlobalStats toGlobalStats(Integer adId, String adName, String companyName, List<Object[]> rows) {
 
-            agg.plays++;
-            agg.seconds += duration;
+        if (rows.isEmpty()) {
+            AdGlobalStats empty = new AdGlobalStats(adId, adName, 0, 0, List.of(), null, null);
+            empty.setCompanyname(companyName);
+            return empty;
         }
 
+        long totalPlays = 0L;
+        long totalSeconds = 0L;
+
+        LocalDateTime firstStart = null;
+        LocalDateTime lastEnd    = null;
+
         List<AdPerScreenStats> perScreen = new ArrayList<>();
-        for (Map.Entry<Integer, ScreenAgg> entry : aggMap.entrySet()) {
-            Integer sid = entry.getKey();
-            ScreenAgg a = entry.getValue();
 
-            String sname = (a.name != null && !a.name.isBlank())
-                    ? a.name
-                    : "Screen " + sid;
+        for (Object[] r : rows) {
+
+            Integer scrId   = r[0] != null ? ((Number) r[0]).intValue() : null;
+            String  name    = (String) r[1];
+            long    allRows = ((Number) r[2]).longValue();
+            long    plays   = ((Number) r[3]).longValue();
+            long    seconds = r[4] != null ? ((Number) r[4]).longValue() : 0L;
+
+            LocalDateTime s = toLocalDateTime(r[5]);
+            LocalDateTime e = toLocalDateTime(r[6]);
+
+            totalPlays += allRows;
+            totalSeconds += seconds;
+
+            if (s != null && (firstStart == null || s.isBefore(firstStart))) firstStart = s;
+            if (e != null && (lastEnd    == null || e.isAfter(lastEnd)))     lastEnd    = e;
+
+            // events without screen or start never show up per screen
+            if (scrId == null || plays == 0) continue;
 
             perScreen.add(new AdPerScreenStats(
-                    sid,
-                    sname,
-                    a.plays,
-                    a.seconds
+                    scrId,
+                    screenName(scrId, name),
+                    plays,
+                    seconds
             ));
         }
 
+        LocalDate lifetimeFrom = (firstStart != null ? firstStart.toLocalDate() : null);
+        LocalDate lifetimeTo   = (lastEnd    != null ? lastEnd.toLocalDate()    : null);
+
         perScreen.sort(Comparator.comparingLong(AdPerScreenStats::getTotalSeconds).reversed());
 
         AdGlobalStats result = new AdGlobalStats(
@@ -168,78 +252,118 @@ public class AdStatsService {
         return result;
     }
 
+    private static String screenName(Integer scrId, String name) {
+        return (name != null && !name.isBlank())
+                ? name
+                : "Screen " + scrId;
+    }
+
     // ============================================================
-    // RANGE REPORT
+    // LIFETIME TOTALS FOR MANY ADS (list page)
+    // One grouped query instead of computeTotalStats per ad.
+    // perScreen is left empty, the list only needs the totals.
     // ============================================================
 
-    public List<AdPerScreenStats> computeStatsForRange(Integer adId,
-                                                       LocalDate fromDate,
-                                                       LocalDate toDate) {
+    public Map<Integer, AdGlobalStats> computeLifetimeTotals(Collection<MediaAsset> ads) {
 
-        LocalDateTime from = fromDate.atStartOfDay();
-        LocalDateTime to   = toDate.plusDays(1).atStartOfDay();
+        Map<Integer, Object[]> rowsByAd = new HashMap<>();
+        for (Object[] r : queryLimiter.cheap(() -> stalenessGuard.onPrimary(eventLogDailyRepository::getLifetimeTotals))) {
+            rowsByAd.put(((Number) r[0]).intValue(), r);
+        }
 
-        Long mediaAssetId = adId.longValue();
+        Map<Integer, AdGlobalStats> result = new LinkedHashMap<>();
 
-        List<EventLog> logs = eventLogRepository
-                .findByMediaAssetIdAndStartBetween(mediaAssetId, from, to);
+        for (MediaAsset ad : ads) {
+            Integer adId = ad.getId();
+            Object[] r = rowsByAd.get(adId);
 
-        if (logs.isEmpty()) return List.of();
+            long plays   = (r != null && r[1] != null) ? ((Number) r[1]).longValue() : 0L;
+            long seconds = (r != null && r[2] != null) ? ((Number) r[2]).longValue() : 0L;
 
-        Map<Integer, ScreenAgg> aggMap = new HashMap<>();
+            LocalDateTime firstStart = (r != null ? toLocalDateTime(r[3]) : null);
+            LocalDateTime lastEnd    = (r != null ? toLocalDateTime(r[4]) : null);
 
-        for (EventLog log : logs) {
+            AdGlobalStats stats = new AdGlobalStats(
+                    adId,
+                    ad.getName(),
+                    plays,
+                    seconds,
+                    List.of(),
+                    firstStart != null ? firstStart.toLocalDate() : null,
+                    lastEnd != null ? lastEnd.toLocalDate() : null
+            );
+            stats.setCompanyname(ad.getCompanyname());
 
-            LocalDateTime start = log.getStart();
-            if (start == null) continue;
+            result.put(adId, stats);
+        }
 
-            LocalDateTime end = (log.getEnd() != null ? log.getEnd() : start);
+        return result;
+    }
 
-            long duration = Duration.between(start, end).getSeconds();
-            if (duration < 0) duration = 0;
+    // ============================================================
+    // LIFETIME BOUNDS ONLY (range report header)
+    // Per-ad summary row + tail, independent of the ad's history size.
+    // ============================================================
 
-            Screen screen = log.getScreen();
-            if (screen == null) continue;
+    public AdLifetimeBounds computeLifetimeBounds(Integer adId) {
 
-            Integer scrId = screen.getId();
-            String screenName = screen.getName();
+        List<Object[]> rows = queryLimiter.cheap(() -> stalenessGuard.onPrimary(() ->
+                eventLogDailyRepository.getLifetimeBounds(adId.longValue())));
+        Object[] r = rows.isEmpty() ? new Object[2] : rows.get(0);
 
-            ScreenAgg agg = aggMap.computeIfAbsent(scrId, id -> {
-                ScreenAgg a = new ScreenAgg();
-                a.name = screenName;
-                return a;
-            });
+        LocalDateTime firstStart = toLocalDateTime(r[0]);
+        LocalDateTime lastEnd    = toLocalDateTime(r[1]);
 
-            agg.plays++;
-            agg.seconds += duration;
-        }
+        return new AdLifetimeBounds(
+                firstStart != null ? firstStart.toLocalDate() : null,
+                lastEnd != null ? lastEnd.toLocalDate() : null
+        );
+    }
 
-        List<AdPerScreenStats> perScreen = new ArrayList<>();
-        for (Map.Entry<Integer, ScreenAgg> entry : aggMap.entrySet()) {
-            Integer sid = entry.getKey();
-            ScreenAgg a = entry.getValue();
+    // native timestamp columns come back as java.sql.Timestamp or LocalDateTime depending on driver
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value == null) return null;
+        if (value instanceof LocalDateTime ldt) return ldt;
+        if (value instanceof java.sql.Timestamp ts) return ts.toLocalDateTime();
+        if (value instanceof java.time.OffsetDateTime odt) return odt.toLocalDateTime();
+        throw new IllegalArgumentException("Unexpected timestamp type: " + value.getClass());
+    }
 
-            String sname = (a.name != null && !a.name.isBlank())
-                    ? a.name
-                    : "Screen " + sid;
+    // ============================================================
+    // RANGE REPORT
+    // ============================================================
+
+    public List<AdPerScreenStats> computeStatsForRange(Integer adId,
+                                                       LocalDate fromDate,
+                                                       LocalDate toDate) {
+        return statsCache.get(AdStatsCache.Key.range(adId, fromDate, toDate),
+                () -> loadStatsForRange(adId, fromDate, toDate));
+    }
+
+    private List<AdPerScreenStats> loadStatsForRange(Integer adId,
+                                                     LocalDate fromDate,
+                                                     LocalDate toDate) {
+
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to   = toDate.plusDays(1).atStartOfDay();
+
+        List<Object[]> rows = queryLimiter.heavy(() -> stalenessGuard.forWindow(to, () ->
+                eventLogDailyRepository.getRangePerScreen(adId.longValue(), fromDate, toDate, from, to)));
+
+        List<AdPerScreenStats> perScreen = new ArrayList<>();
+        for (Object[] r : rows) {
+            Integer sid = ((Number) r[0]).intValue();
 
             perScreen.add(new AdPerScreenStats(
                     sid,
-                    sname,
-                    a.plays,
-                    a.seconds
+                    screenName(sid, (String) r[1]),
+                    ((Number) r[2]).longValue(),
+                    r[3] != null ? ((Number) r[3]).longValue() : 0L
             ));
         }
 
         perScreen.sort(Comparator.comparingLong(AdPerScreenStats::getTotalSeconds).reversed());
 
-        return perScreen;
-    }
-
-    // helper
-    private static class ScreenAgg {
-        long plays = 0;
-        long seconds = 0;
-        String name;
+        return List.copyOf(perScreen); // shared through the cache
     }
 }
@@ -0,0 +1,356 @@
+package demo.example.demo.service;
+
+import demo.example.demo.dto.BulkReportStatus;
+import demo.example.demo.entity.MediaAsset;
+import demo.example.demo.repositories.MediaAssetRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Month-end bulk export: one PDF per ad, packed into a ZIP.
+ *
+ * A job renders its reports on a fixed pool of report-threads workers, the
+ * pool queue is bounded so a few huge jobs cannot pile up unbounded work.
+ * Finished PDFs are written to the job's directory under spool-directory,
+ * not kept in memory; the download writes each entry as soon as its report
+ * is ready, in completion order, and can be repeated (a dropped connection
+ * is retried with a new download). Jobs are kept for job-ttl after they
+ * finished, then dropped with their files.
+ */
+@Service
+public class BulkReportService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkReportService.class);
+
+    private final AdReportPdfService adReportPdfService;
+    private final MediaAssetRepository mediaAssetRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final QueryLimiter queryLimiter;
+    private final ReplicaStalenessGuard stalenessGuard;
+
+    private final int maxAds;
+    private final Duration entryTimeout;
+    private final Duration jobTtl;
+    private final Path spoolDirectory;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public BulkReportService(AdReportPdfService adReportPdfService,
+                             MediaAssetRepository mediaAssetRepository,
+                             PlatformTransactionManager transactionManager,
+                             QueryLimiter queryLimiter,
+                             ReplicaStalenessGuard stalenessGuard,
+                             @Value("${reports.bulk.threads:4}") int threads,
+                             @Value("${reports.bulk.queue-capacity:2000}") int queueCapacity,
+                             @Value("${reports.bulk.max-ads:1000}") int maxAds,
+                             @Value("${reports.bulk.entry-timeout:5m}") Duration entryTimeout,
+                             @Value("${reports.bulk.job-ttl:30m}") Duration jobTtl,
+                             @Value("${reports.bulk.spool-directory:${java.io.tmpdir}/bulk-reports}") String spoolDirectory) {
+        this.adReportPdfService = adReportPdfService;
+        this.mediaAssetRepository = mediaAssetRepository;
+        this.queryLimiter = queryLimiter;
+        this.stalenessGuard = stalenessGuard;
+        this.maxAds = maxAds;
+        this.entryTimeout = entryTimeout;
+        this.jobTtl = jobTtl;
+        this.spoolDirectory = Path.of(spoolDirectory);
+
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+
+        AtomicInteger threadNr = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bulk-report-" + threadNr.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        jobs.values().forEach(this::deleteFiles);
+    }
+
+    // ============================================================
+    // JOB SUBMISSION
+    // ============================================================
+
+    /**
+     * Resolves the ads of a request: all ads of companyName, or the given ids
+     * (unknown ids are skipped).
+     */
+    public List<MediaAsset> resolveAds(String companyName, Collection<Integer> adIds) {
+        if (companyName != null && !companyName.isBlank()) {
+            return mediaAssetRepository.findByCompanynameIgnoreCaseOrderById(companyName.trim());
+        }
+        if (adIds == null || adIds.isEmpty()) {
+            return List.of();
+        }
+        return mediaAssetRepository.findAllById(adIds);
+    }
+
+    public int maxAds() {
+        return maxAds;
+    }
+
+    /**
+     * Starts rendering one report per ad. from/to null means lifetime reports.
+     * Returns null when the worker queue has no room for the job.
+     */
+    public Job submit(List<MediaAsset> ads, LocalDate from, LocalDate to) {
+
+        if (executor.getQueue().remainingCapacity() < ads.size()) {
+            return null;
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path directory;
+        try {
+            directory = Files.createDirectories(spoolDirectory.resolve(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the spool directory of bulk report " + id, e);
+        }
+
+        Job job = new Job(id, ads.size(), directory);
+        jobs.put(job.id, job);
+
+        for (MediaAsset ad : ads) {
+            Integer adId = ad.getId();
+            try {
+                executor.execute(() -> render(job, adId, from, to));
+            } catch (RejectedExecutionException ex) {
+                // lost the race for the last queue slots
+                job.fail(adId, "rejected, too many reports queued");
+            }
+        }
+        return job;
+    }
+
+    private void render(Job job, Integer adId, LocalDate from, LocalDate to) {
+        try {
+            // permit before the transaction, so a queued report does not sit on a connection.
+            // A range report runs each read in its own transaction: a closed range can come
+            // from the read replica, the lifetime bounds of its header come from the primary
+            AdReportPdfService.ReportData report = queryLimiter.heavy(() -> from == null
+                    ? stalenessGuard.onPrimary(() -> readOnlyTx.execute(tx -> adReportPdfService.lifetimeReport(adId)))
+                    : adReportPdfService.rangeReport(adId, from, to));
+
+            String name = fileName(adId, from, to);
+            Path partial = job.directory.resolve(name + ".partial");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+                adReportPdfService.writePdf(report, out);
+            }
+            Path pdf = Files.move(partial, job.directory.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+
+            job.complete(new Entry(name, pdf));
+
+        } catch (IOException ex) {
+            log.warn("Bulk report {}: ad {} could not be written", job.id, adId, ex);
+            job.fail(adId, ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.warn("Bulk report {}: ad {} failed", job.id, adId, ex);
+            job.fail(adId, ex.getMessage());
+        }
+    }
+
+    private static String fileName(Integer adId, LocalDate from, LocalDate to) {
+        return from == null
+                ? String.format("ad-%d-lifetime-report.pdf", adId)
+                : String.format("ad-%d-report-%s_%s.pdf", adId, from, to);
+    }
+
+    // ============================================================
+    // PROGRESS + DOWNLOAD
+    // ============================================================
+
+    public Job find(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Writes the job's ZIP into {@code out}, entry by entry as the reports
+     * finish. Failed ads are listed in errors.txt at the end. {@code out} is not closed.
+     */
+    public void writeZip(Job job, OutputStream out) throws IOException {
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(Deflater.BEST_SPEED); // PDF content is compressed already
+
+        job.downloads.incrementAndGet();
+        try {
+            for (int index = 0; index < job.total; index++) {
+                Entry entry;
+                try {
+                    entry = job.awaitEntry(index, entryTimeout);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Bulk report download interrupted");
+                }
+                if (entry == null) {
+                    throw new IOException("Bulk report " + job.id + ": no report finished within " + entryTimeout);
+                }
+                if (entry.pdf() == null) continue; // failed ad, reported in errors.txt
+
+                zip.putNextEntry(new ZipEntry(entry.name()));
+                Files.copy(entry.pdf(), zip);
+                zip.closeEntry();
+                zip.flush();
+            }
+        } finally {
+            job.downloads.decrementAndGet();
+        }
+
+        List<String> errors = job.errors();
+        if (!errors.isEmpty()) {
+            zip.putNextEntry(new ZipEntry("errors.txt"));
+            zip.write(String.join("\n", errors).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        zip.finish();
+    }
+
+    // a job being downloaded is kept until the download ends
+    @Scheduled(fixedDelayString = "${reports.bulk.cleanup-interval-ms:60000}")
+    public void dropExpiredJobs() {
+        Instant cutoff = Instant.now().minus(jobTtl);
+        jobs.values().removeIf(job -> {
+            Instant doneAt = job.doneAt;
+            if (doneAt == null || !doneAt.isBefore(cutoff) || job.downloads.get() > 0) return false;
+            deleteFiles(job);
+            return true;
+        });
+    }
+
+    private void deleteFiles(Job job) {
+        try (Stream<Path> files = Files.walk(job.directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Bulk report {}: could not delete {}", job.id, path, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Bulk report {}: could not delete {}", job.id, job.directory, e);
+        }
+    }
+
+    // ============================================================
+    // JOB STATE
+    // ============================================================
+
+    public static final class Job {
+
+        private final String id;
+        private final int total;
+        private final Path directory;
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final List<Entry> finished = new ArrayList<>(); // completion order, guarded by this
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger downloads = new AtomicInteger();
+        private volatile Instant doneAt;
+
+        private Job(String id, int total, Path directory) {
+            this.id = id;
+            this.total = total;
+            this.directory = directory;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public BulkReportStatus status() {
+            int c = completed.get();
+            int f = failed.get();
+            return new BulkReportStatus(id, c + f < total ? "RUNNING" : "DONE", total, c, f, errors());
+        }
+
+        private void complete(Entry entry) {
+            completed.incrementAndGet();
+            finish(entry);
+        }
+
+        private void fail(Integer adId, String reason) {
+            errors.add("ad " + adId + ": " + reason);
+            failed.incrementAndGet();
+            finish(new Entry(null, null));
+        }
+
+        private synchronized void finish(Entry entry) {
+            finished.add(entry);
+            markDoneIfLast();
+            notifyAll();
+        }
+
+        // the index-th finished entry, null if none finished within timeout
+        private synchronized Entry awaitEntry(int index, Duration timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (finished.size() <= index) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return null;
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            return finished.get(index);
+        }
+
+        private void markDoneIfLast() {
+            if (completed.get() + failed.get() >= total) {
+                doneAt = Instant.now();
+            }
+        }
+
+        private List<String> errors() {
+            synchronized (errors) {
+                return List.copyOf(errors);
+            }
+        }
+    }
+
+    // pdf == null for a failed ad
+    private record Entry(String name, Path pdf) {}
+}
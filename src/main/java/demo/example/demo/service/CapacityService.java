@@ -0,0 +1,288 @@
+package demo.example.demo.service;
+
+import demo.example.demo.dto.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Booked versus available airtime per screen, hour and day.
+ *
+ * A schedule books playsPerDay * MediaAsset.duration seconds a day, spread
+ * evenly over its fromtime/totime window (opening hours when open). Every
+ * hour of the opening hours offers 3600 seconds, hours outside offer none.
+ *
+ * Loads are computed per screen over the whole date range at once: every
+ * schedule from the {@link ScheduleIndex} adds its hourly shares at its first
+ * day and removes them after its last day in a day x hour difference array,
+ * one prefix sum then gives the load of every hour. Two small queries
+ * (screens, asset durations) per call, no per-day work in the database.
+ */
+@Service
+public class CapacityService {
+
+    static final int HOURS = 24;
+    static final int HOUR_SECONDS = 3600;
+
+    private static final int DAY_SECONDS = HOURS * HOUR_SECONDS;
+    private static final double EPSILON = 1e-6;
+
+    private final ScheduleIndex scheduleIndex;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int openFromSecond;
+    private final int openToSecond;
+    private final double defaultAssetSeconds;
+    private final int maxDays;
+    private final int maxConflicts;
+
+    private final double[] hourCapacity = new double[HOURS];
+    private final double[] closed = new double[HOURS];
+
+    public CapacityService(ScheduleIndex scheduleIndex,
+                           JdbcTemplate jdbcTemplate,
+                           @Value("${capacity.open-from-hour:0}") int openFromHour,
+                           @Value("${capacity.open-to-hour:24}") int openToHour,
+                           @Value("${capacity.default-asset-seconds:10}") double defaultAssetSeconds,
+                           @Value("${capacity.max-days:400}") int maxDays,
+                           @Value("${capacity.max-conflicts:100}") int maxConflicts) {
+        if (openFromHour < 0 || openToHour > HOURS || openFromHour >= openToHour) {
+            throw new IllegalArgumentException("capacity opening hours must be within 0..24, got "
+                    + openFromHour + ".." + openToHour);
+        }
+        this.scheduleIndex = scheduleIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.openFromSecond = openFromHour * HOUR_SECONDS;
+        this.openToSecond = openToHour * HOUR_SECONDS;
+        this.defaultAssetSeconds = defaultAssetSeconds;
+        this.maxDays = maxDays;
+        this.maxConflicts = maxConflicts;
+
+        for (int h = openFromHour; h < openToHour; h++) {
+            hourCapacity[h] = HOUR_SECONDS;
+        }
+    }
+
+    public int maxDays() {
+        return maxDays;
+    }
+
+    private record ScreenRef(int id, String name, boolean active) {}
+
+    // ============================================================
+    // GRID (API + heatmap)
+    // ============================================================
+
+    /**
+     * Booked seconds and busiest-hour utilization of every screen (or only
+     * {@code screenIds}) for each day of [from, to].
+     */
+    public CapacityGrid grid(LocalDate from, LocalDate to, Collection<Integer> screenIds) {
+
+        int days = days(from, to);
+        Map<Integer, Double> assetSeconds = loadAssetSeconds();
+        double[] load = new double[(days + 1) * HOURS];
+
+        List<ScreenCapacity> result = new ArrayList<>();
+        for (ScreenRef screen : loadScreens(screenIds)) {
+            accumulate(screen.id(), from, days, assetSeconds, load);
+            double[] capacity = screen.active() ? hourCapacity : closed;
+
+            long[] booked = new long[days];
+            int[] peak = new int[days];
+            for (int d = 0; d < days; d++) {
+                double sum = 0;
+                double worst = 0;
+                for (int h = 0, i = d * HOURS; h < HOURS; h++, i++) {
+                    sum += load[i];
+                    worst = Math.max(worst, utilization(load[i], capacity[h]));
+                }
+                booked[d] = Math.round(sum);
+                peak[d] = (int) Math.min(999, Math.round(worst * 100));
+            }
+            result.add(new ScreenCapacity(screen.id(), screen.name(), screen.active(), booked, peak));
+        }
+
+        return new CapacityGrid(from, to, (openToSecond - openFromSecond), result);
+    }
+
+    // ============================================================
+    // CHECK ("can this booking fit")
+    // ============================================================
+
+    /**
+     * Adds the booking to the current load of every requested screen and
+     * reports the (screen, day) pairs where an hour would go over its airtime.
+     */
+    public CapacityCheckResult check(CapacityCheckRequest request) {
+
+        int days = days(request.from(), request.to());
+        Map<Integer, Double> assetSeconds = loadAssetSeconds();
+
+        double adSeconds = request.adSeconds() != null
+                ? request.adSeconds()
+                : assetSeconds.getOrDefault(request.mediaAssetId(), defaultAssetSeconds);
+        double perDay = adSeconds * (request.playsPerDay() != null ? request.playsPerDay() : 0d);
+
+        double[] extra = new double[HOURS];
+        spread(request.fromtime(), request.totime(), perDay, extra);
+
+        List<ScreenRef> screens = loadScreens(request.screenIds());
+        if (request.screenIds() == null || request.screenIds().isEmpty()) {
+            screens.removeIf(s -> !s.active());
+        } else {
+            // unknown ids are checked as screens without airtime
+            Set<Integer> known = new HashSet<>();
+            for (ScreenRef s : screens) known.add(s.id());
+            for (Integer id : new LinkedHashSet<>(request.screenIds())) {
+                if (!known.contains(id)) screens.add(new ScreenRef(id, null, false));
+            }
+        }
+
+        double[] load = new double[(days + 1) * HOURS];
+        List<CapacityConflict> conflicts = new ArrayList<>();
+        int conflictCount = 0;
+
+        for (ScreenRef screen : screens) {
+            accumulate(screen.id(), request.from(), days, assetSeconds, load);
+            double[] capacity = screen.active() ? hourCapacity : closed;
+
+            for (int d = 0; d < days; d++) {
+                int worstHour = -1;
+                double worstOver = 0;
+                for (int h = 0, i = d * HOURS; h < HOURS; h++, i++) {
+                    if (extra[h] <= 0) continue;
+                    double over = load[i] + extra[h] - capacity[h];
+                    if (over > EPSILON && over > worstOver) {
+                        worstOver = over;
+                        worstHour = h;
+                    }
+                }
+                if (worstHour < 0) continue;
+
+                conflictCount++;
+                if (conflicts.size() < maxConflicts) {
+                    conflicts.add(new CapacityConflict(
+                            screen.id(),
+                            request.from().plusDays(d),
+                            worstHour,
+                            Math.round(load[d * HOURS + worstHour]),
+                            Math.round(extra[worstHour]),
+                            (long) capacity[worstHour]));
+                }
+            }
+        }
+
+        return new CapacityCheckResult(conflictCount == 0, Math.round(perDay),
+                screens.size(), conflictCount, conflicts);
+    }
+
+    // ============================================================
+    // LOAD ARRAYS
+    // ============================================================
+
+    /**
+     * Fills load[d * HOURS + h] (d < days) with the booked seconds of the
+     * screen in hour h of day from + d. load needs (days + 1) * HOURS slots.
+     */
+    void accumulate(int screenId, LocalDate from, int days,
+                    Map<Integer, Double> assetSeconds, double[] load) {
+
+        Arrays.fill(load, 0, (days + 1) * HOURS, 0d);
+
+        long first = from.toEpochDay();
+        long last = first + days - 1;
+        double[] share = new double[HOURS];
+
+        for (ScheduleEntry e : scheduleIndex.forScreenBetween(screenId, from, from.plusDays(days - 1))) {
+            if (e.duration() == null || e.duration() <= 0) continue;
+
+            double seconds = e.duration() * (e.mediaAssetId() != null
+                    ? assetSeconds.getOrDefault(e.mediaAssetId(), defaultAssetSeconds)
+                    : defaultAssetSeconds);
+            if (!spread(e.fromtime(), e.totime(), seconds, share)) continue;
+
+            int a = e.fromdate() != null ? (int) (Math.max(first, e.fromdate().toEpochDay()) - first) : 0;
+            int b = e.todate() != null ? (int) (Math.min(last, e.todate().toEpochDay()) - first) : days - 1;
+
+            int start = a * HOURS;
+            int stop = (b + 1) * HOURS;
+            for (int h = 0; h < HOURS; h++) {
+                if (share[h] == 0) continue;
+                load[start + h] += share[h];
+                load[stop + h] -= share[h];
+            }
+        }
+
+        for (int i = HOURS, n = days * HOURS; i < n; i++) {
+            load[i] += load[i - HOURS];
+        }
+    }
+
+    /**
+     * Spreads {@code seconds} over the hours of the window, clipped to the
+     * opening hours (a window fully outside them keeps its own hours, which
+     * have no airtime). Returns false for an empty window, nothing is booked then.
+     */
+    boolean spread(LocalTime fromtime, LocalTime totime, double seconds, double[] share) {
+        Arrays.fill(share, 0d);
+
+        int from = fromtime != null ? fromtime.toSecondOfDay() : 0;
+        int to = totime != null ? totime.toSecondOfDay() : DAY_SECONDS;
+        if (to >= DAY_SECONDS - 1) to = DAY_SECONDS; // 23:59:59 means end of day
+
+        if (to <= from || seconds <= 0) return false;
+
+        int clippedFrom = Math.max(from, openFromSecond);
+        int clippedTo = Math.min(to, openToSecond);
+        if (clippedFrom < clippedTo) {
+            from = clippedFrom;
+            to = clippedTo;
+        }
+
+        double perSecond = seconds / (to - from);
+        for (int h = from / HOUR_SECONDS; h < HOURS && h * HOUR_SECONDS < to; h++) {
+            int overlap = Math.min(to, (h + 1) * HOUR_SECONDS) - Math.max(from, h * HOUR_SECONDS);
+            if (overlap > 0) share[h] = overlap * perSecond;
+        }
+        return true;
+    }
+
+    private static double utilization(double load, double capacity) {
+        if (load <= EPSILON) return 0;
+        return capacity > 0 ? load / capacity : Double.POSITIVE_INFINITY;
+    }
+
+    private static int days(LocalDate from, LocalDate to) {
+        return (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+    }
+
+    // ============================================================
+    // REFERENCE DATA
+    // ============================================================
+
+    private Map<Integer, Double> loadAssetSeconds() {
+        Map<Integer, Double> seconds = new HashMap<>();
+        jdbcTemplate.query("SELECT id, duration FROM \"MediaAsset\" WHERE duration IS NOT NULL", rs -> {
+            seconds.put(rs.getInt(1), rs.getDouble(2));
+        });
+        return seconds;
+    }
+
+    private List<ScreenRef> loadScreens(Collection<Integer> screenIds) {
+        Set<Integer> wanted = screenIds != null && !screenIds.isEmpty() ? new HashSet<>(screenIds) : null;
+
+        List<ScreenRef> screens = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, name, active FROM \"Screen\" ORDER BY id", rs -> {
+            int id = rs.getInt(1);
+            if (wanted == null || wanted.contains(id)) {
+                screens.add(new ScreenRef(id, rs.getString(2), rs.getBoolean(3)));
+            }
+        });
+        return screens;
+    }
+}
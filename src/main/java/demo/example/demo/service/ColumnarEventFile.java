@@ -0,0 +1,344 @@
+package demo.example.demo.service;
+
+import demo.example.demo.dto.RawEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact columnar file of "EventLog" rows (".evc"), written by {@link ColumnarExportService}.
+ *
+ * Layout, gzip compressed; integers are LEB128 varints, signed ones zigzag encoded:
+ * <pre>
+ *   "EVC1"
+ *   row groups, each: row count n (&gt; 0), then the n values of every column
+ *     id            delta to the previous id (signed)
+ *     screenid      dictionary: size d, d values (signed), then n indexes (0 = NULL, i = i-th value)
+ *     mediaassetid  dictionary, as screenid
+ *     key           dictionary: size d, d UTF-8 strings (byte length + bytes), then n indexes
+ *     start         NULL bitmap, then epoch microseconds (UTC) as delta to the previous non-NULL start (signed)
+ *     end           NULL bitmap, then microseconds after start, or after 0 when start is NULL (signed)
+ *     createdts     NULL bitmap, then deltas as start
+ *   0
+ * </pre>
+ * Deltas and dictionaries restart in every row group, so a reader only ever
+ * holds one group.
+ */
+public final class ColumnarEventFile {
+
+    static final byte[] MAGIC = "EVC1".getBytes(StandardCharsets.US_ASCII);
+
+    private ColumnarEventFile() {}
+
+    // ============================================================
+    // WRITER
+    // ============================================================
+
+    public static final class Writer implements Closeable {
+
+        private final OutputStream out;
+        private final int rowGroupSize;
+
+        private final long[] ids;
+        private final Integer[] screenIds;
+        private final Integer[] mediaAssetIds;
+        private final String[] keys;
+        private final LocalDateTime[] starts;
+        private final LocalDateTime[] ends;
+        private final LocalDateTime[] createdTs;
+        private int rows;
+
+        public Writer(OutputStream target, int rowGroupSize) throws IOException {
+            this.out = new BufferedOutputStream(new GZIPOutputStream(target, 64 * 1024), 64 * 1024);
+            this.rowGroupSize = rowGroupSize;
+            this.ids = new long[rowGroupSize];
+            this.screenIds = new Integer[rowGroupSize];
+            this.mediaAssetIds = new Integer[rowGroupSize];
+            this.keys = new String[rowGroupSize];
+            this.starts = new LocalDateTime[rowGroupSize];
+            this.ends = new LocalDateTime[rowGroupSize];
+            this.createdTs = new LocalDateTime[rowGroupSize];
+            out.write(MAGIC);
+        }
+
+        public void append(RawEvent e) throws IOException {
+            ids[rows] = e.id();
+            screenIds[rows] = e.screenId();
+            mediaAssetIds[rows] = e.mediaAssetId();
+            keys[rows] = e.key();
+            starts[rows] = e.start();
+            ends[rows] = e.end();
+            createdTs[rows] = e.createdTs();
+            if (++rows == rowGroupSize) flushGroup();
+        }
+
+        /**
+         * Writes the last row group and the end marker, and closes the target.
+         */
+        @Override
+        public void close() throws IOException {
+            flushGroup();
+            writeVarint(out, 0);
+            out.close();
+        }
+
+        private void flushGroup() throws IOException {
+            if (rows == 0) return;
+            int n = rows;
+            writeVarint(out, n);
+
+            long previous = 0;
+            for (int i = 0; i < n; i++) {
+                writeSigned(out, ids[i] - previous);
+                previous = ids[i];
+            }
+
+            writeIntDictionary(screenIds, n);
+            writeIntDictionary(mediaAssetIds, n);
+            writeStringDictionary(keys, n);
+
+            long[] startMicros = new long[n];
+            writeNulls(starts, n);
+            previous = 0;
+            for (int i = 0; i < n; i++) {
+                if (starts[i] == null) continue;
+                startMicros[i] = micros(starts[i]);
+                writeSigned(out, startMicros[i] - previous);
+                previous = startMicros[i];
+            }
+
+            writeNulls(ends, n);
+            for (int i = 0; i < n; i++) {
+                if (ends[i] != null) writeSigned(out, micros(ends[i]) - startMicros[i]);
+            }
+
+            writeNulls(createdTs, n);
+            previous = 0;
+            for (int i = 0; i < n; i++) {
+                if (createdTs[i] == null) continue;
+                long micros = micros(createdTs[i]);
+                writeSigned(out, micros - previous);
+                previous = micros;
+            }
+
+            Arrays.fill(screenIds, 0, n, null);
+            Arrays.fill(mediaAssetIds, 0, n, null);
+            Arrays.fill(keys, 0, n, null);
+            Arrays.fill(starts, 0, n, null);
+            Arrays.fill(ends, 0, n, null);
+            Arrays.fill(createdTs, 0, n, null);
+            rows = 0;
+        }
+
+        private void writeIntDictionary(Integer[] values, int n) throws IOException {
+            Map<Integer, Integer> index = new HashMap<>();
+            List<Integer> dictionary = new ArrayList<>();
+            int[] codes = new int[n];
+            for (int i = 0; i < n; i++) {
+                if (values[i] == null) continue;
+                codes[i] = index.computeIfAbsent(values[i], v -> {
+                    dictionary.add(v);
+                    return dictionary.size();
+                });
+            }
+            writeVarint(out, dictionary.size());
+            for (int v : dictionary) writeSigned(out, v);
+            for (int code : codes) writeVarint(out, code);
+        }
+
+        private void writeStringDictionary(String[] values, int n) throws IOException {
+            Map<String, Integer> index = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            int[] codes = new int[n];
+            for (int i = 0; i < n; i++) {
+                if (values[i] == null) continue;
+                codes[i] = index.computeIfAbsent(values[i], v -> {
+                    dictionary.add(v);
+                    return dictionary.size();
+                });
+            }
+            writeVarint(out, dictionary.size());
+            for (String v : dictionary) {
+                byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, bytes.length);
+                out.write(bytes);
+            }
+            for (int code : codes) writeVarint(out, code);
+        }
+
+        private void writeNulls(Object[] values, int n) throws IOException {
+            byte[] bitmap = new byte[(n + 7) / 8];
+            for (int i = 0; i < n; i++) {
+                if (values[i] == null) bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+            out.write(bitmap);
+        }
+    }
+
+    // ============================================================
+    // READER
+    // ============================================================
+
+    /**
+     * Feeds every row of the file to {@code consumer}, in file order.
+     * Returns the number of rows.
+     */
+    public static long read(InputStream source, Consumer<RawEvent> consumer) throws IOException {
+        InputStream in = new BufferedInputStream(new GZIPInputStream(source, 64 * 1024), 64 * 1024);
+
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not an EVC1 file");
+        }
+
+        long total = 0;
+        int n;
+        while ((n = (int) readVarint(in)) > 0) {
+            long[] ids = new long[n];
+            long previous = 0;
+            for (int i = 0; i < n; i++) {
+                previous += readSigned(in);
+                ids[i] = previous;
+            }
+
+            Integer[] screenIds = readIntDictionary(in, n);
+            Integer[] mediaAssetIds = readIntDictionary(in, n);
+            String[] keys = readStringDictionary(in, n);
+
+            boolean[] startNull = readNulls(in, n);
+            long[] startMicros = new long[n];
+            previous = 0;
+            for (int i = 0; i < n; i++) {
+                if (startNull[i]) continue;
+                previous += readSigned(in);
+                startMicros[i] = previous;
+            }
+
+            boolean[] endNull = readNulls(in, n);
+            long[] endMicros = new long[n];
+            for (int i = 0; i < n; i++) {
+                if (!endNull[i]) endMicros[i] = startMicros[i] + readSigned(in);
+            }
+
+            boolean[] createdNull = readNulls(in, n);
+            long[] createdMicros = new long[n];
+            previous = 0;
+            for (int i = 0; i < n; i++) {
+                if (createdNull[i]) continue;
+                previous += readSigned(in);
+                createdMicros[i] = previous;
+            }
+
+            for (int i = 0; i < n; i++) {
+                consumer.accept(new RawEvent(
+                        ids[i],
+                        startNull[i] ? null : dateTime(startMicros[i]),
+                        endNull[i] ? null : dateTime(endMicros[i]),
+                        keys[i],
+                        screenIds[i],
+                        mediaAssetIds[i],
+                        createdNull[i] ? null : dateTime(createdMicros[i])));
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static Integer[] readIntDictionary(InputStream in, int n) throws IOException {
+        int size = (int) readVarint(in);
+        Integer[] dictionary = new Integer[size];
+        for (int i = 0; i < size; i++) dictionary[i] = (int) readSigned(in);
+
+        Integer[] values = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            int code = (int) readVarint(in);
+            if (code > 0) values[i] = dictionary[code - 1];
+        }
+        return values;
+    }
+
+    private static String[] readStringDictionary(InputStream in, int n) throws IOException {
+        int size = (int) readVarint(in);
+        String[] dictionary = new String[size];
+        for (int i = 0; i < size; i++) {
+            int length = (int) readVarint(in);
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length < length) throw new EOFException();
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String[] values = new String[n];
+        for (int i = 0; i < n; i++) {
+            int code = (int) readVarint(in);
+            if (code > 0) values[i] = dictionary[code - 1];
+        }
+        return values;
+    }
+
+    private static boolean[] readNulls(InputStream in, int n) throws IOException {
+        byte[] bitmap = in.readNBytes((n + 7) / 8);
+        if (bitmap.length < (n + 7) / 8) throw new EOFException();
+        boolean[] nulls = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            nulls[i] = (bitmap[i >>> 3] & (1 << (i & 7))) != 0;
+        }
+        return nulls;
+    }
+
+    // ============================================================
+    // ENCODING HELPERS
+    // ============================================================
+
+    static long micros(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + t.getNano() / 1_000;
+    }
+
+    static LocalDateTime dateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static void writeSigned(OutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readSigned(InputStream in) throws IOException {
+        long v = readVarint(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
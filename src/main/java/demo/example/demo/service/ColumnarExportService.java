@@ -0,0 +1,175 @@
+package demo.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Nightly export of "EventLog" into one columnar file per day of createdts
+ * ({@link ColumnarEventFile}, eventlog-yyyy-MM-dd.evc), so analytics reads
+ * files instead of pulling the table over JDBC.
+ *
+ * A day is exported once it is over and the settle lag has passed; the last
+ * exported day is kept in {@link EventLogMarks} ("columnar-export"),
+ * every run picks up where the previous one stopped, at most max-days-per-run
+ * days at a time. Files are written next to their final name and moved in
+ * place, a reader never sees a half-written day. Rows without createdts are
+ * not exported.
+ *
+ * The scan runs outside the mark's transaction (it goes to the replica), so
+ * instances exporting at once may both write a day: each writes its own
+ * partial file and the day's content is the same either way. The mark is
+ * moved with a compare-and-set once the file is in place, the instance that
+ * loses it stops.
+ */
+@Service
+public class ColumnarExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarExportService.class);
+
+    static final String STATE_NAME = "columnar-export";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EventExportService eventExportService;
+    private final EventLogMarks marks;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration settleLag;
+    private final int rowGroupSize;
+    private final int maxDaysPerRun;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public ColumnarExportService(JdbcTemplate jdbcTemplate,
+                                 EventExportService eventExportService,
+                                 EventLogMarks marks,
+                                 @Value("${export.columnar.enabled:false}") boolean enabled,
+                                 @Value("${export.columnar.directory:exports/eventlog}") String directory,
+                                 @Value("${export.columnar.settle-lag:10m}") Duration settleLag,
+                                 @Value("${export.columnar.row-group-size:131072}") int rowGroupSize,
+                                 @Value("${export.columnar.max-days-per-run:31}") int maxDaysPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventExportService = eventExportService;
+        this.marks = marks;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.settleLag = settleLag;
+        this.rowGroupSize = rowGroupSize;
+        this.maxDaysPerRun = maxDaysPerRun;
+    }
+
+    // ============================================================
+    // SCHEDULED RUN
+    // ============================================================
+
+    @Scheduled(cron = "${export.columnar.cron:0 15 1 * * *}")
+    public void scheduledExport() {
+        if (!enabled) return;
+        try {
+            exportClosedDays(LocalDateTime.now());
+        } catch (RuntimeException ex) {
+            log.error("Columnar EventLog export failed", ex);
+        }
+    }
+
+    /**
+     * Exports every day after the last exported one that is closed at
+     * {@code now}. Returns the files written, oldest first.
+     */
+    public List<Path> exportClosedDays(LocalDateTime now) {
+        if (!runLock.tryLock()) return List.of(); // an export is already running
+
+        try {
+            LocalDate lastClosed = now.minus(settleLag).toLocalDate().minusDays(1);
+
+            LocalDate last = marks.lastDay(STATE_NAME);
+            LocalDate next = last != null ? last.plusDays(1) : firstDay();
+            List<Path> files = new ArrayList<>();
+            while (next != null && !next.isAfter(lastClosed) && files.size() < maxDaysPerRun) {
+                Path file = exportDay(next);
+                try {
+                    marks.advanceDay(STATE_NAME, last, next);
+                } catch (EventLogMarks.MarkMovedException e) {
+                    log.info("Columnar export: {} already exported by another instance", next);
+                    break;
+                }
+                files.add(file);
+                last = next;
+                next = next.plusDays(1);
+            }
+            return files;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the events created on {@code day}, replacing an earlier file of that day.
+     */
+    public Path exportDay(LocalDate day) {
+        Path target = directory.resolve("eventlog-" + day + ".evc");
+
+        Path partial = null;
+        try {
+            Files.createDirectories(directory);
+            // per writer, another instance may be exporting the same day
+            partial = Files.createTempFile(directory, "eventlog-" + day + ".", ".evc.partial");
+
+            long rows;
+            try (ColumnarEventFile.Writer writer =
+                         new ColumnarEventFile.Writer(Files.newOutputStream(partial), rowGroupSize)) {
+                rows = eventExportService.scanCreated(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), event -> {
+                    try {
+                        writer.append(event);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            partial = null;
+            log.info("Columnar export {}: {} events, {} bytes", target.getFileName(), rows, Files.size(target));
+            return target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Columnar export of " + day + " failed", e);
+        } finally {
+            if (partial != null) deletePartial(partial);
+        }
+    }
+
+    private static void deletePartial(Path partial) {
+        try {
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", partial, e);
+        }
+    }
+
+    // ============================================================
+    // STATE
+    // ============================================================
+
+    // the first createdts day, null while the table is empty
+    private LocalDate firstDay() {
+        Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(createdts) FROM \"EventLog\"", Timestamp.class);
+        return first != null ? first.toLocalDateTime().toLocalDate() : null;
+    }
+}
@@ -0,0 +1,437 @@
+package demo.example.demo.service;
+
+import demo.example.demo.dto.ScheduleDeliveryDto;
+import demo.example.demo.entity.MediaAsset;
+import demo.example.demo.entity.Schedule;
+import demo.example.demo.repositories.ScheduleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reconciles delivered plays ("EventLog") with planned plays ("Schedule")
+ * per schedule and day, results are kept in "ScheduleDelivery".
+ *
+ * New events are picked up by id above a high-water mark (same settle lag and
+ * chunking as {@link EventLogRollupService}), grouped per (ad, screen, day) and
+ * credited to the schedules of that ad and screen covering the day, split by
+ * planned plays when several do. Events without a matching schedule are only
+ * counted. A run therefore costs what arrived since the previous one.
+ *
+ * Once a day is over it is closed: schedules without any delivery get their
+ * row, and rows delivering less than under-delivery-ratio of the plan are
+ * flagged. Late events for a closed day update the flag.
+ *
+ * Both marks are {@link EventLogMarks}: "reconciliation" holds the last
+ * event id, "reconciliation-days" the last closed day. Every chunk and every
+ * closed day is one transaction that starts by moving its mark, so runs on
+ * several instances do not credit or close anything twice: the one that
+ * loses the mark rolls back and stops.
+ * Schedules without fromdate / todate are not reconciled.
+ */
+@Service
+public class DeliveryReconciliationService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryReconciliationService.class);
+
+    static final String EVENTS_STATE = "reconciliation";
+    static final String DAYS_STATE = "reconciliation-days";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduleRepository scheduleRepository;
+    private final EventLogMarks marks;
+
+    private final boolean enabled;
+    private final Duration settleLag;
+    private final long chunkSize;
+    private final double underDeliveryRatio;
+    private final int backfillDays;
+
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    public DeliveryReconciliationService(JdbcTemplate jdbcTemplate,
+                                         TransactionTemplate transactionTemplate,
+                                         ScheduleRepository scheduleRepository,
+                                         EventLogMarks marks,
+                                         @Value("${reconciliation.enabled:true}") boolean enabled,
+                                         @Value("${reconciliation.settle-lag:1m}") Duration settleLag,
+                                         @Value("${reconciliation.chunk-size:50000}") long chunkSize,
+                                         @Value("${reconciliation.under-delivery-ratio:0.9}") double underDeliveryRatio,
+                                         @Value("${reconciliation.backfill-days:30}") int backfillDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.scheduleRepository = scheduleRepository;
+        this.marks = marks;
+        this.enabled = enabled;
+        this.settleLag = settleLag;
+        this.chunkSize = chunkSize;
+        this.underDeliveryRatio = underDeliveryRatio;
+        this.backfillDays = backfillDays;
+    }
+
+    // ============================================================
+    // SCHEDULED RUN
+    // ============================================================
+
+    @Scheduled(fixedDelayString = "${reconciliation.refresh-interval-ms:300000}",
+               initialDelayString = "${reconciliation.refresh-interval-ms:300000}")
+    public void scheduledRun() {
+        if (!enabled) return;
+        long events = reconcile(LocalDate.now());
+        if (events > 0) {
+            log.debug("Delivery reconciliation: {} new events credited", events);
+        }
+    }
+
+    /**
+     * Credits all settled events above the high-water mark, then closes the
+     * days before {@code today}. Returns the number of events processed.
+     */
+    public long reconcile(LocalDate today) {
+        if (!runLock.tryLock()) return 0; // a run is already going
+
+        try {
+            long events = creditNewEvents();
+            closeDaysBefore(today);
+            return events;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    // ============================================================
+    // READS
+    // ============================================================
+
+    /**
+     * Rows of [from, to], optionally of one ad and / or only the flagged ones.
+     */
+    public List<ScheduleDeliveryDto> deliveries(LocalDate from, LocalDate to, Integer adId, boolean underDeliveredOnly) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT schedule_id, playday, mediaassetid, screenid, planned_plays, planned_seconds,
+                       delivered_plays, delivered_seconds, closed, under_delivered
+                FROM "ScheduleDelivery"
+                WHERE playday >= ? AND playday <= ?
+                """);
+        List<Object> args = new ArrayList<>(List.of(from, to));
+
+        if (adId != null) {
+            sql.append(" AND mediaassetid = ?");
+            args.add(adId);
+        }
+        if (underDeliveredOnly) {
+            sql.append(" AND under_delivered = TRUE");
+        }
+        sql.append(" ORDER BY playday, mediaassetid, screenid, schedule_id");
+
+        return jdbcTemplate.query(sql.toString(),
+                (rs, i) -> new ScheduleDeliveryDto(
+                        rs.getInt(1),
+                        rs.getObject(2, LocalDate.class),
+                        rs.getInt(3),
+                        rs.getObject(4, Integer.class),
+                        rs.getDouble(5),
+                        rs.getDouble(6),
+                        rs.getLong(7),
+                        rs.getLong(8),
+                        rs.getBoolean(9),
+                        rs.getBoolean(10)),
+                args.toArray());
+    }
+
+    // ============================================================
+    // NEW EVENTS: ids in (mark, settled max]
+    // ============================================================
+
+    private long creditNewEvents() {
+        Long mark = marks.lastId(EVENTS_STATE);
+        long from = mark != null ? mark : 0L;
+        Timestamp settledBefore = Timestamp.valueOf(LocalDateTime.now().minus(settleLag));
+
+        Long upper = jdbcTemplate.queryForObject("""
+                SELECT MAX(id) FROM "EventLog"
+                WHERE id > ? AND (createdts IS NULL OR createdts <= ?)
+                """, Long.class, from, settledBefore);
+
+        if (upper == null) return 0;
+
+        LocalDate closedDay = marks.lastDay(DAYS_STATE);
+        LocalDate closedThrough = closedDay != null ? closedDay : LocalDate.MIN;
+
+        long total = 0;
+        long unscheduled = 0;
+        while (from < upper) {
+            Long chunkMark = mark;
+            long chunkFrom = from;
+            long chunkTo = Math.min(upper, from + chunkSize);
+
+            long[] counts;
+            try {
+                counts = transactionTemplate.execute(tx -> creditChunk(chunkMark, chunkFrom, chunkTo, closedThrough));
+            } catch (EventLogMarks.MarkMovedException e) {
+                log.info("Delivery reconciliation: ids above {} already credited by another instance", chunkFrom);
+                break;
+            }
+            mark = chunkTo;
+            from = chunkTo;
+            if (counts != null) {
+                total += counts[0];
+                unscheduled += counts[1];
+            }
+        }
+
+        if (unscheduled > 0) {
+            log.debug("Delivery reconciliation: {} plays without a matching schedule", unscheduled);
+        }
+        return total;
+    }
+
+    // returns {events, events without schedule}
+    private long[] creditChunk(Long mark, long fromId, long toId, LocalDate closedThrough) {
+
+        marks.advanceId(EVENTS_STATE, mark, toId);
+
+        List<Delivery> deliveries = jdbcTemplate.query("""
+                SELECT
+                    mediaassetid,
+                    screenid,
+                    CAST("start" AS DATE) AS playday,
+                    COUNT(*) AS plays,
+                    COALESCE(SUM(GREATEST(FLOOR(EXTRACT(EPOCH FROM (COALESCE("end","start") - "start"))), 0)), 0) AS seconds
+                FROM "EventLog"
+                WHERE id > ? AND id <= ?
+                  AND mediaassetid IS NOT NULL
+                  AND screenid IS NOT NULL
+                  AND "start" IS NOT NULL
+                GROUP BY mediaassetid, screenid, CAST("start" AS DATE)
+                """,
+                (rs, i) -> new Delivery(
+                        rs.getInt(1),
+                        rs.getInt(2),
+                        rs.getObject(3, LocalDate.class),
+                        rs.getLong(4),
+                        rs.getLong(5)),
+                fromId, toId);
+
+        Map<Integer, List<Delivery>> byAd = new LinkedHashMap<>();
+        for (Delivery d : deliveries) {
+            byAd.computeIfAbsent(d.adId(), k -> new ArrayList<>()).add(d);
+        }
+
+        long events = 0;
+        long unscheduled = 0;
+        List<Credit> credits = new ArrayList<>();
+
+        for (Map.Entry<Integer, List<Delivery>> ad : byAd.entrySet()) {
+            LocalDate minDay = LocalDate.MAX;
+            LocalDate maxDay = LocalDate.MIN;
+            for (Delivery d : ad.getValue()) {
+                if (d.day().isBefore(minDay)) minDay = d.day();
+                if (d.day().isAfter(maxDay)) maxDay = d.day();
+            }
+
+            List<Schedule> schedules = scheduleRepository.findByMediaAssetIdAndDateRange(ad.getKey(), minDay, maxDay);
+
+            for (Delivery d : ad.getValue()) {
+                events += d.plays();
+                List<Schedule> matching = new ArrayList<>();
+                for (Schedule s : schedules) {
+                    if (d.screenId() == s.getScreen().getId()
+                            && !d.day().isBefore(s.getFromdate())
+                            && !d.day().isAfter(s.getTodate())) {
+                        matching.add(s);
+                    }
+                }
+                if (matching.isEmpty()) {
+                    unscheduled += d.plays();
+                } else {
+                    split(d, matching, credits);
+                }
+            }
+        }
+
+        if (!credits.isEmpty()) {
+            upsertCredits(credits, closedThrough);
+        }
+
+        return new long[]{events, unscheduled};
+    }
+
+    // several schedules of the same ad and screen on one day share the delivery by planned plays
+    private static void split(Delivery d, List<Schedule> matching, List<Credit> credits) {
+        matching.sort(Comparator.comparing(Schedule::getId));
+
+        double totalPlanned = 0;
+        for (Schedule s : matching) totalPlanned += planned(s);
+
+        long playsLeft = d.plays();
+        long secondsLeft = d.seconds();
+
+        for (int i = 0; i < matching.size(); i++) {
+            Schedule s = matching.get(i);
+            boolean last = i == matching.size() - 1;
+
+            double weight = totalPlanned > 0 ? planned(s) / totalPlanned : 1.0 / matching.size();
+            long plays = last ? playsLeft : (long) Math.floor(d.plays() * weight);
+            long seconds = last ? secondsLeft : (long) Math.floor(d.seconds() * weight);
+            playsLeft -= plays;
+            secondsLeft -= seconds;
+
+            credits.add(new Credit(s.getId(), d.day(), d.adId(), d.screenId(),
+                    planned(s), planned(s) * assetSeconds(s.getMediaAsset()), plays, seconds));
+        }
+    }
+
+    private void upsertCredits(List<Credit> credits, LocalDate closedThrough) {
+
+        List<Object[]> updates = new ArrayList<>(credits.size());
+        for (Credit c : credits) {
+            updates.add(new Object[]{
+                    c.plays(), c.seconds(),
+                    c.plannedPlays(), c.plannedSeconds(),
+                    c.plays(), c.plannedPlays(), underDeliveryRatio,
+                    c.scheduleId(), c.day()
+            });
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate("""
+                UPDATE "ScheduleDelivery"
+                SET delivered_plays   = delivered_plays + ?,
+                    delivered_seconds = delivered_seconds + ?,
+                    planned_plays     = ?,
+                    planned_seconds   = ?,
+                    under_delivered   = closed AND (delivered_plays + ?) < ? * ?
+                WHERE schedule_id = ? AND playday = ?
+                """, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Credit c = credits.get(i);
+                boolean closed = !c.day().isAfter(closedThrough);
+                inserts.add(new Object[]{
+                        c.scheduleId(), c.day(), c.adId(), c.screenId(),
+                        c.plannedPlays(), c.plannedSeconds(), c.plays(), c.seconds(),
+                        closed, closed && c.plays() < c.plannedPlays() * underDeliveryRatio
+                });
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO "ScheduleDelivery"
+                        (schedule_id, playday, mediaassetid, screenid, planned_plays, planned_seconds,
+                         delivered_plays, delivered_seconds, closed, under_delivered)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """, inserts);
+        }
+    }
+
+    // ============================================================
+    // CLOSING DAYS
+    // ============================================================
+
+    private void closeDaysBefore(LocalDate today) {
+        LocalDate lastDay = today.minusDays(1);
+        LocalDate closedThrough;
+
+        LocalDate mark = marks.lastDay(DAYS_STATE);
+        if (mark == null) {
+            // first run: days before the backfill window only get their delivered rows closed
+            closedThrough = today.minusDays(backfillDays + 1L);
+            LocalDate before = closedThrough;
+            try {
+                transactionTemplate.executeWithoutResult(tx -> {
+                    marks.advanceDay(DAYS_STATE, null, before);
+                    jdbcTemplate.update("""
+                            UPDATE "ScheduleDelivery"
+                            SET closed = TRUE,
+                                under_delivered = delivered_plays < planned_plays * ?
+                            WHERE playday <= ? AND closed = FALSE
+                            """, underDeliveryRatio, before);
+                });
+            } catch (EventLogMarks.MarkMovedException e) {
+                log.info("Delivery reconciliation: days already closed by another instance");
+                return;
+            }
+        } else {
+            closedThrough = mark;
+        }
+
+        for (LocalDate day = closedThrough.plusDays(1); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            LocalDate d = day;
+            try {
+                transactionTemplate.executeWithoutResult(tx -> closeDay(d));
+            } catch (EventLogMarks.MarkMovedException e) {
+                log.info("Delivery reconciliation: {} already closed by another instance", d);
+                return;
+            }
+        }
+    }
+
+    private void closeDay(LocalDate day) {
+
+        marks.advanceDay(DAYS_STATE, day.minusDays(1), day);
+
+        // schedules that delivered nothing that day
+        jdbcTemplate.update("""
+                INSERT INTO "ScheduleDelivery"
+                    (schedule_id, playday, mediaassetid, screenid, planned_plays, planned_seconds,
+                     delivered_plays, delivered_seconds)
+                SELECT s.id, ?, s.mediaassetid, s.screenid,
+                       COALESCE(s.duration, 0), COALESCE(s.duration, 0) * COALESCE(m.duration, 0), 0, 0
+                FROM "Schedule" s
+                LEFT JOIN "MediaAsset" m ON m.id = s.mediaassetid
+                WHERE s.mediaassetid IS NOT NULL
+                  AND s.screenid IS NOT NULL
+                  AND s.fromdate <= ? AND s.todate >= ?
+                  AND NOT EXISTS (SELECT 1 FROM "ScheduleDelivery" d
+                                  WHERE d.schedule_id = s.id AND d.playday = ?)
+                """, day, day, day, day);
+
+        jdbcTemplate.update("""
+                UPDATE "ScheduleDelivery"
+                SET closed = TRUE,
+                    under_delivered = delivered_plays < planned_plays * ?
+                WHERE playday = ?
+                """, underDeliveryRatio, day);
+    }
+
+    // ============================================================
+    // HELPERS
+    // ============================================================
+
+    private static double planned(Schedule s) {
+        Double repetition = s.getRepetition();
+        return repetition != null && repetition > 0 ? repetition : 0d;
+    }
+
+    private static double assetSeconds(MediaAsset asset) {
+        return asset != null && asset.getDuration() != null ? asset.getDuration() : 0d;
+    }
+
+    // events of one (ad, screen, day) in a chunk
+    private record Delivery(int adId, int screenId, LocalDate day, long plays, long seconds) {}
+
+    // share of a delivery credited to one schedule
+    private record Credit(int scheduleId,
+                          LocalDate day,
+                          int adId,
+                          int screenId,
+                          double plannedPlays,
+                          double plannedSeconds,
+                          long plays,
+                          long seconds) {}
+}
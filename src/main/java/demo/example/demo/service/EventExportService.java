@@ -0,0 +1,189 @@
+package demo.example.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import demo.example.demo.dto.RawEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+/**
+ * Streaming scans over raw "EventLog" rows, and the CSV / NDJSON export built on them.
+ *
+ * Rows are read through a forward-only cursor (fetch-size rows per round trip,
+ * inside a read-only transaction so PostgreSQL keeps the cursor open) and handed
+ * to the consumer one by one, so memory does not grow with the range. Unlike the
+ * List&lt;EventLog&gt; repository methods nothing is kept in a persistence context.
+ */
+@Service
+public class EventExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    static final String CSV_HEADER = "id,start,end,key,screen_id,media_asset_id,created_ts";
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final JdbcTemplate scanTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectWriter eventWriter;
+    private final QueryLimiter queryLimiter;
+    private final ReplicaStalenessGuard stalenessGuard;
+
+    public EventExportService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              QueryLimiter queryLimiter,
+                              ReplicaStalenessGuard stalenessGuard,
+                              @Value("${export.events.fetch-size:5000}") int fetchSize) {
+        this.scanTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.scanTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.eventWriter = objectMapper.writerFor(RawEvent.class);
+        this.queryLimiter = queryLimiter;
+        this.stalenessGuard = stalenessGuard;
+    }
+
+    // ============================================================
+    // SCAN
+    // ============================================================
+
+    /**
+     * Feeds every event of {@code adId} with start in [from, to) to
+     * {@code consumer}, ordered by start and id. Returns the number of events.
+     */
+    public long scan(int adId, LocalDateTime from, LocalDateTime to, Consumer<RawEvent> consumer) {
+        return scan("""
+                SELECT id, "start", "end", "key", screenid, mediaassetid, createdts
+                FROM "EventLog"
+                WHERE mediaassetid = ?
+                  AND "start" >= ?
+                  AND "start" < ?
+                ORDER BY "start", id
+                """, to, consumer, adId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Feeds every event (all ads) with createdts in [from, to) to
+     * {@code consumer}, ordered by id. Returns the number of events.
+     */
+    public long scanCreated(LocalDateTime from, LocalDateTime to, Consumer<RawEvent> consumer) {
+        return scan("""
+                SELECT id, "start", "end", "key", screenid, mediaassetid, createdts
+                FROM "EventLog"
+                WHERE createdts >= ?
+                  AND createdts < ?
+                ORDER BY id
+                """, to, consumer, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    // a HEAVY read for the whole scan, the cursor holds its connection until the end;
+    // on the replica unless the window reaches into its lag
+    private long scan(String sql, LocalDateTime to, Consumer<RawEvent> consumer, Object... args) {
+        Long count = queryLimiter.heavy(() -> stalenessGuard.forWindow(to, () -> readOnlyTransaction.execute(tx -> {
+            long[] n = {0};
+            scanTemplate.query(sql, rs -> {
+                consumer.accept(toEvent(rs));
+                n[0]++;
+            }, args);
+            return n[0];
+        })));
+        return count != null ? count : 0;
+    }
+
+    // ============================================================
+    // EXPORT
+    // ============================================================
+
+    /**
+     * Writes the events of {@code adId} played in [from, to] (inclusive days)
+     * to {@code out}. Returns the number of events written.
+     */
+    public long export(int adId, LocalDate from, LocalDate to, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long n;
+        try {
+            n = scan(adId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), event -> {
+                try {
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, event);
+                    } else {
+                        writer.write(eventWriter.writeValueAsString(event));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // client went away
+        }
+
+        writer.flush();
+        return n;
+    }
+
+    // ============================================================
+    // HELPERS
+    // ============================================================
+
+    private static RawEvent toEvent(ResultSet rs) throws SQLException {
+        return new RawEvent(
+                rs.getLong(1),
+                rs.getObject(2, LocalDateTime.class),
+                rs.getObject(3, LocalDateTime.class),
+                rs.getString(4),
+                rs.getObject(5, Integer.class),
+                rs.getObject(6, Integer.class),
+                rs.getObject(7, LocalDateTime.class));
+    }
+
+    private static void writeCsvRow(Writer w, RawEvent e) throws IOException {
+        w.write(Long.toString(e.id()));
+        w.write(',');
+        if (e.start() != null) w.write(TIMESTAMP.format(e.start()));
+        w.write(',');
+        if (e.end() != null) w.write(TIMESTAMP.format(e.end()));
+        w.write(',');
+        if (e.key() != null) w.write(csvField(e.key()));
+        w.write(',');
+        if (e.screenId() != null) w.write(e.screenId().toString());
+        w.write(',');
+        if (e.mediaAssetId() != null) w.write(e.mediaAssetId().toString());
+        w.write(',');
+        if (e.createdTs() != null) w.write(TIMESTAMP.format(e.createdTs()));
+        w.write('\n');
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
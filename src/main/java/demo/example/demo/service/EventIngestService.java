@@ -0,0 +1,359 @@
+package demo.example.demo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import demo.example.demo.dto.EventIngestDto;
+import demo.example.demo.dto.EventIngestResult;
+import demo.example.demo.repositories.MediaAssetRepository;
+import demo.example.demo.repositories.ScreenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffered write path for "EventLog".
+ *
+ * Incoming events are resolved (screen uuid -> id) and put on an in-memory
+ * queue bounded by queue-capacity. A single flusher thread drains it and
+ * writes batches of up to batch-size rows with multi-row INSERT statements,
+ * so the IDENTITY id of EventLog does not force one round trip per row.
+ * A batch is written in one transaction: a failed attempt leaves no rows
+ * behind, so its retry cannot duplicate plays, and a batch dropped after
+ * its last attempt was not written at all.
+ * When the queue is full {@link #offer} waits at most offer-timeout and then
+ * refuses the whole request, the caller answers 429 and the player retries.
+ * A request has to fit the queue to ever be accepted, so requests over
+ * max-events-per-request (at most queue-capacity) are refused for good (413).
+ */
+@Service
+public class EventIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventIngestService.class);
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO \"EventLog\" (\"start\", \"end\", \"key\", screenid, mediaassetid, createdts) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?)";
+    private static final int[] ROW_TYPES = {
+            Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.TIMESTAMP
+    };
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScreenRepository screenRepository;
+    private final MediaAssetRepository mediaAssetRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int batchSize;
+    private final int rowsPerStatement;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final int maxEventsPerRequest;
+
+    private final LinkedBlockingQueue<PendingEvent> queue = new LinkedBlockingQueue<>();
+    private final Semaphore capacity;
+
+    // screens and ads hardly change, cache the positive lookups
+    private final Map<UUID, Integer> screenIdsByUuid = new ConcurrentHashMap<>();
+    private final Set<Integer> knownAdIds = ConcurrentHashMap.newKeySet();
+    // and, for a while, the uuids no screen has, so a misconfigured player is not a lookup per request
+    private final Cache<UUID, Boolean> unknownScreenUuids;
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter acceptedCounter;
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public EventIngestService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              ScreenRepository screenRepository,
+                              MediaAssetRepository mediaAssetRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${ingest.queue-capacity:200000}") int queueCapacity,
+                              @Value("${ingest.batch-size:5000}") int batchSize,
+                              @Value("${ingest.rows-per-statement:1000}") int rowsPerStatement,
+                              @Value("${ingest.flush-interval-ms:500}") long flushIntervalMs,
+                              @Value("${ingest.offer-timeout-ms:100}") long offerTimeoutMs,
+                              @Value("${ingest.max-events-per-request:5000}") int maxEventsPerRequest,
+                              @Value("${ingest.unknown-screen-ttl:5m}") Duration unknownScreenTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.screenRepository = screenRepository;
+        this.mediaAssetRepository = mediaAssetRepository;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.rowsPerStatement = rowsPerStatement;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxEventsPerRequest = Math.min(maxEventsPerRequest, queueCapacity);
+        this.capacity = new Semaphore(queueCapacity);
+        this.unknownScreenUuids = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(unknownScreenTtl)
+                .build();
+
+        this.flushTimer = Timer.builder("eventlog.ingest.flush")
+                .description("Time to write one batch of events")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("eventlog.ingest.batch.size")
+                .description("Events written per flush")
+                .register(meterRegistry);
+        this.acceptedCounter = meterRegistry.counter("eventlog.ingest.events", "result", "accepted");
+        this.rejectedCounter = meterRegistry.counter("eventlog.ingest.events", "result", "rejected");
+        this.droppedCounter = meterRegistry.counter("eventlog.ingest.events", "result", "dropped");
+        Gauge.builder("eventlog.ingest.queue.size", queue, LinkedBlockingQueue::size)
+                .description("Events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void startFlusher() {
+        flusher = new Thread(this::runFlusher, "eventlog-ingest-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void stopFlusher() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(10_000);
+        flush(); // whatever is left
+    }
+
+    // ============================================================
+    // PRODUCER SIDE
+    // ============================================================
+
+    /**
+     * The most events one request may carry.
+     */
+    public int maxEventsPerRequest() {
+        return maxEventsPerRequest;
+    }
+
+    /**
+     * Validates and queues the events. Returns null when the queue stays full
+     * for longer than offer-timeout; nothing is queued in that case.
+     */
+    public EventIngestResult offer(List<EventIngestDto> events) throws InterruptedException {
+
+        if (events.size() > maxEventsPerRequest) {
+            throw new IllegalArgumentException(
+                    events.size() + " events in one request, at most " + maxEventsPerRequest);
+        }
+
+        LocalDateTime receivedAt = LocalDateTime.now();
+
+        List<PendingEvent> valid = new ArrayList<>(events.size());
+        for (EventIngestDto e : events) {
+            PendingEvent p = resolve(e, receivedAt);
+            if (p != null) valid.add(p);
+        }
+
+        int rejected = events.size() - valid.size();
+
+        if (!valid.isEmpty()) {
+            if (!capacity.tryAcquire(valid.size(), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+            queue.addAll(valid);
+        }
+
+        acceptedCounter.increment(valid.size());
+        rejectedCounter.increment(rejected);
+
+        return new EventIngestResult(valid.size(), rejected);
+    }
+
+    private PendingEvent resolve(EventIngestDto e, LocalDateTime receivedAt) {
+        if (e == null || e.screenUuid() == null || e.mediaAssetId() == null || e.start() == null) {
+            return null;
+        }
+
+        Integer screenId = screenIdsByUuid.get(e.screenUuid());
+        if (screenId == null) {
+            if (unknownScreenUuids.getIfPresent(e.screenUuid()) != null) return null;
+            screenId = screenRepository.findIdByUuid(e.screenUuid()).orElse(null);
+            if (screenId == null) {
+                unknownScreenUuids.put(e.screenUuid(), Boolean.TRUE);
+                return null;
+            }
+            screenIdsByUuid.put(e.screenUuid(), screenId);
+        }
+
+        Integer adId = e.mediaAssetId();
+        if (!knownAdIds.contains(adId)) {
+            if (!mediaAssetRepository.existsById(adId)) return null;
+            knownAdIds.add(adId);
+        }
+
+        return new PendingEvent(screenId, adId, e.start(), e.end(), e.key(), receivedAt);
+    }
+
+    // ============================================================
+    // FLUSHER SIDE
+    // ============================================================
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                List<PendingEvent> batch = takeBatch();
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (InterruptedException ie) {
+                if (!running) return;
+            } catch (RuntimeException ex) {
+                log.error("EventLog ingest flusher failed", ex);
+            }
+        }
+    }
+
+    // waits for the first event, then collects more until the batch is full or flush-interval passed
+    private List<PendingEvent> takeBatch() throws InterruptedException {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+
+        PendingEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) return batch;
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize) break;
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+
+            PendingEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * Writes everything that is queued right now, on the calling thread.
+     */
+    public void flush() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void write(List<PendingEvent> batch) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    flushTimer.record(() -> transactionTemplate.executeWithoutResult(tx -> insert(batch)));
+                    batchSizes.record(batch.size());
+                    publishAppended(batch);
+                    return;
+                } catch (RuntimeException ex) {
+                    if (attempt >= MAX_WRITE_ATTEMPTS) {
+                        droppedCounter.increment(batch.size());
+                        log.error("Dropping {} events after {} failed writes", batch.size(), attempt, ex);
+                        return;
+                    }
+                    log.warn("Writing {} events failed (attempt {}), retrying", batch.size(), attempt, ex);
+                    sleepQuietly(200L * attempt);
+                }
+            }
+        } finally {
+            capacity.release(batch.size());
+        }
+    }
+
+    private void insert(List<PendingEvent> batch) {
+        for (int from = 0; from < batch.size(); from += rowsPerStatement) {
+            List<PendingEvent> rows = batch.subList(from, Math.min(batch.size(), from + rowsPerStatement));
+
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * 20)
+                    .append(INSERT_PREFIX);
+            Object[] args = new Object[rows.size() * ROW_TYPES.length];
+            int[] types = new int[args.length];
+
+            int i = 0;
+            for (PendingEvent p : rows) {
+                if (i > 0) sql.append(',');
+                sql.append(ROW_PLACEHOLDERS);
+                System.arraycopy(ROW_TYPES, 0, types, i, ROW_TYPES.length);
+
+                args[i++] = Timestamp.valueOf(p.start());
+                args[i++] = p.end() != null ? Timestamp.valueOf(p.end()) : null;
+                args[i++] = p.key();
+                args[i++] = p.screenId();
+                args[i++] = p.mediaAssetId();
+                args[i++] = Timestamp.valueOf(p.receivedAt());
+            }
+
+            jdbcTemplate.update(sql.toString(), args, types);
+        }
+    }
+
+    private void publishAppended(List<PendingEvent> batch) {
+        Set<Integer> adIds = new HashSet<>();
+        Set<LocalDate> playDays = new HashSet<>();
+        for (PendingEvent p : batch) {
+            adIds.add(p.mediaAssetId());
+            playDays.add(p.start().toLocalDate());
+        }
+        eventPublisher.publishEvent(new EventLogAppendedEvent(adIds, playDays));
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int queuedEvents() {
+        return queue.size();
+    }
+
+    private record PendingEvent(int screenId,
+                                int mediaAssetId,
+                                LocalDateTime start,
+                                LocalDateTime end,
+                                String key,
+                                LocalDateTime receivedAt) {}
+}
@@ -0,0 +1,11 @@
+package demo.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published when new "EventLog" rows for the given ads became visible,
+ * either written by EventIngestService or picked up by the rollup refresh.
+ * playDays are the start days of those rows (rows without start are left out).
+ */
+public record EventLogAppendedEvent(Set<Integer> adIds, Set<LocalDate> playDays) {}
@@ -0,0 +1,120 @@
+package demo.example.demo.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Named progress marks of the jobs that work through "EventLog", one row of
+ * "EventLogRollupState" each: the last event id a job has processed
+ * ("daily", "reconciliation") or the last day it has finished
+ * ("reconciliation-days", "columnar-export").
+ *
+ * Save a mark in the same transaction as the work it stands for. Jobs that
+ * may run on several instances at once move their mark with
+ * {@link #advanceId} / {@link #advanceDay} first in that transaction: the
+ * compare-and-set keeps the row locked until the transaction ends, so a
+ * second instance on the same mark waits, then finds the mark moved and
+ * rolls back instead of doing the work twice.
+ */
+@Component
+public class EventLogMarks {
+
+    /**
+     * The mark was no longer where the caller read it, another instance
+     * has done that work.
+     */
+    public static class MarkMovedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public MarkMovedException(String name, Object expected) {
+            super("Mark \"" + name + "\" is no longer at " + (expected != null ? expected : "its start"));
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EventLogMarks(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The last event id of {@code name}, null before its first save.
+     */
+    public Long lastId(String name) {
+        List<Long> marks = jdbcTemplate.queryForList(
+                "SELECT last_id FROM \"EventLogRollupState\" WHERE name = ?", Long.class, name);
+        return marks.isEmpty() ? null : marks.get(0);
+    }
+
+    /**
+     * The last day of {@code name}, null before its first save.
+     */
+    public LocalDate lastDay(String name) {
+        List<LocalDate> marks = jdbcTemplate.queryForList(
+                "SELECT last_day FROM \"EventLogRollupState\" WHERE name = ?", LocalDate.class, name);
+        return marks.isEmpty() ? null : marks.get(0);
+    }
+
+    public void saveId(String name, long lastId) {
+        save(name, "last_id", lastId);
+    }
+
+    /**
+     * Moves the event id mark of {@code name} from {@code expected} (null:
+     * no mark yet) to {@code next}.
+     *
+     * @throws MarkMovedException if the mark is no longer at {@code expected}
+     */
+    public void advanceId(String name, Long expected, long next) {
+        advance(name, "last_id", expected, next);
+    }
+
+    /**
+     * Moves the day mark of {@code name} from {@code expected} (null: no
+     * mark yet) to {@code next}.
+     *
+     * @throws MarkMovedException if the mark is no longer at {@code expected}
+     */
+    public void advanceDay(String name, LocalDate expected, LocalDate next) {
+        advance(name, "last_day", expected, next);
+    }
+
+    private void advance(String name, String column, Object expected, Object next) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (expected == null) {
+            // a concurrent first insert waits for ours and then fails on the key
+            try {
+                jdbcTemplate.update(
+                        "INSERT INTO \"EventLogRollupState\" (name, " + column + ", refreshed_at) VALUES (?, ?, ?)",
+                        name, next, now);
+            } catch (DuplicateKeyException e) {
+                throw new MarkMovedException(name, null);
+            }
+            return;
+        }
+        int n = jdbcTemplate.update(
+                "UPDATE \"EventLogRollupState\" SET " + column + " = ?, refreshed_at = ? WHERE name = ? AND " + column + " = ?",
+                next, now, name, expected);
+        if (n == 0) {
+            throw new MarkMovedException(name, expected);
+        }
+    }
+
+    private void save(String name, String column, Object value) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int n = jdbcTemplate.update(
+                "UPDATE \"EventLogRollupState\" SET " + column + " = ?, refreshed_at = ? WHERE name = ?",
+                value, now, name);
+        if (n == 0) {
+            jdbcTemplate.update(
+                    "INSERT INTO \"EventLogRollupState\" (name, " + column + ", refreshed_at) VALUES (?, ?, ?)",
+                    name, value, now);
+        }
+    }
+}
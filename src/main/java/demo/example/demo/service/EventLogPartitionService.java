@@ -0,0 +1,222 @@
+package demo.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly range partitions of "EventLog" on "start" (PostgreSQL only, after
+ * db/event-log-partitioning.sql turned the table into a partitioned one).
+ *
+ * Every maintenance run creates the partitions of the current month and the
+ * next months-ahead months, moves legacy-months-per-run older months out of
+ * the default partition (the pre-partitioning table) and, with a retention
+ * set, detaches partitions older than retention-months and moves them to the
+ * archive schema, where they can be dumped and dropped.
+ *
+ * Stats keep working for archived months, they are read from the rollup;
+ * only a rollup rebuild would lose them.
+ */
+@Service
+public class EventLogPartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLogPartitionService.class);
+
+    static final String DEFAULT_PARTITION = "EventLog_default";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("EventLog_p(\\d{6})");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final String archiveSchema;
+    private final YearMonth migrateFrom;
+    private final int legacyMonthsPerRun;
+
+    public EventLogPartitionService(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${eventlog.partitions.enabled:false}") boolean enabled,
+                                    @Value("${eventlog.partitions.months-ahead:3}") int monthsAhead,
+                                    @Value("${eventlog.partitions.retention-months:0}") int retentionMonths,
+                                    @Value("${eventlog.partitions.archive-schema:archive}") String archiveSchema,
+                                    @Value("${eventlog.partitions.migrate-from:}") String migrateFrom,
+                                    @Value("${eventlog.partitions.legacy-months-per-run:1}") int legacyMonthsPerRun) {
+        if (!archiveSchema.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("eventlog.partitions.archive-schema must be a plain identifier: " + archiveSchema);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archiveSchema = archiveSchema;
+        this.migrateFrom = migrateFrom.isBlank() ? null : YearMonth.parse(migrateFrom);
+        this.legacyMonthsPerRun = legacyMonthsPerRun;
+    }
+
+    // ============================================================
+    // SCHEDULED MAINTENANCE
+    // ============================================================
+
+    @Scheduled(cron = "${eventlog.partitions.cron:0 30 2 * * *}")
+    public void scheduledMaintenance() {
+        if (!enabled) return;
+        try {
+            maintain(YearMonth.now());
+        } catch (RuntimeException ex) {
+            log.error("EventLog partition maintenance failed", ex);
+        }
+    }
+
+    /**
+     * Creates upcoming partitions, moves some legacy months out of the
+     * default partition and archives expired ones, relative to {@code current}.
+     */
+    public void maintain(YearMonth current) {
+        if (!isPartitioned()) {
+            log.warn("\"EventLog\" is not partitioned, run db/event-log-partitioning.sql first");
+            return;
+        }
+
+        TreeSet<YearMonth> existing = new TreeSet<>(partitions());
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!existing.contains(month)) {
+                createPartition(month);
+                existing.add(month);
+            }
+        }
+
+        if (migrateFrom != null) {
+            int moved = 0;
+            for (YearMonth month = migrateFrom; month.isBefore(current) && moved < legacyMonthsPerRun; month = month.plusMonths(1)) {
+                if (existing.contains(month)) continue;
+                if (retentionMonths > 0 && month.isBefore(current.minusMonths(retentionMonths))) continue;
+                createPartition(month);
+                existing.add(month);
+                moved++;
+            }
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (YearMonth month : existing.headSet(oldestKept)) {
+                archivePartition(month);
+            }
+        }
+    }
+
+    // ============================================================
+    // PARTITIONS
+    // ============================================================
+
+    /**
+     * Months with an attached partition, oldest first.
+     */
+    public List<YearMonth> partitions() {
+        List<String> names = jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                JOIN pg_class p ON p.oid = i.inhparent
+                JOIN pg_namespace n ON n.oid = p.relnamespace
+                WHERE p.relname = 'EventLog' AND n.nspname = current_schema()
+                ORDER BY c.relname
+                """, String.class);
+
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            Matcher m = PARTITION_NAME.matcher(name);
+            if (m.matches()) months.add(YearMonth.parse(m.group(1), SUFFIX));
+        }
+        return months;
+    }
+
+    /**
+     * Creates and attaches the partition of {@code month}. Rows of that month
+     * still in the default partition are moved into it first, with inserts
+     * into the default partition blocked until the ATTACH; the CHECK
+     * constraint lets ATTACH skip validating the new partition. For months
+     * from the default partition's range constraint on (set up by the switch
+     * script) ATTACH skips reading the default partition too; older months
+     * read it once, which is why legacy months are moved a few per (nightly) run.
+     */
+    public void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        String from = month.atDay(1) + " 00:00:00";
+        String to = month.plusMonths(1).atDay(1) + " 00:00:00";
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.execute("CREATE TABLE \"" + name + "\" (LIKE \"EventLog\" INCLUDING DEFAULTS)");
+            jdbcTemplate.execute("ALTER TABLE \"" + name + "\" ADD CONSTRAINT \"" + name + "_range\""
+                    + " CHECK (\"start\" IS NOT NULL AND \"start\" >= '" + from + "' AND \"start\" < '" + to + "')");
+
+            // rows of the month arriving after the DELETE would make the ATTACH fail
+            jdbcTemplate.execute("LOCK TABLE \"" + DEFAULT_PARTITION + "\" IN SHARE ROW EXCLUSIVE MODE");
+
+            int moved = jdbcTemplate.update("WITH moved AS ("
+                    + " DELETE FROM \"" + DEFAULT_PARTITION + "\""
+                    + " WHERE \"start\" >= '" + from + "' AND \"start\" < '" + to + "'"
+                    + " RETURNING *)"
+                    + " INSERT INTO \"" + name + "\" SELECT * FROM moved");
+
+            jdbcTemplate.execute("ALTER TABLE \"EventLog\" ATTACH PARTITION \"" + name + "\""
+                    + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            jdbcTemplate.execute("ALTER TABLE \"" + name + "\" DROP CONSTRAINT \"" + name + "_range\"");
+
+            log.info("EventLog partition {} created, {} rows moved from {}", name, moved, DEFAULT_PARTITION);
+        });
+    }
+
+    /**
+     * Detaches the partition of {@code month} and moves it to the archive schema.
+     */
+    public void archivePartition(YearMonth month) {
+        String name = partitionName(month);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.execute("ALTER TABLE \"EventLog\" DETACH PARTITION \"" + name + "\"");
+            jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+            jdbcTemplate.execute("ALTER TABLE \"" + name + "\" SET SCHEMA " + archiveSchema);
+        });
+
+        log.info("EventLog partition {} detached and moved to schema {}", name, archiveSchema);
+    }
+
+    public boolean isPartitioned() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) return false;
+
+        Integer n = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*)
+                FROM pg_partitioned_table pt
+                JOIN pg_class c ON c.oid = pt.partrelid
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE c.relname = 'EventLog' AND n.nspname = current_schema()
+                """, Integer.class);
+        return n != null && n > 0;
+    }
+
+    static String partitionName(YearMonth month) {
+        return "EventLog_p" + month.format(SUFFIX);
+    }
+}
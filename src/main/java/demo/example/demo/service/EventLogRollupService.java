@@ -0,0 +1,338 @@
+package demo.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the "EventLogDaily" rollup in sync with "EventLog", along with the
+ * per-ad lifetime bounds ("EventLogAdSummary") and the last write per play
+ * day ("EventLogDaySummary").
+ *
+ * Events are picked up by id above a high-water mark ({@link EventLogMarks}
+ * "daily"), in chunks of chunk-size ids, each chunk in its own transaction
+ * that starts by moving the mark. When several instances refresh at once the
+ * mark's row lock lets one fold the chunk, the others find the mark moved,
+ * roll back and stop. Only events older than the settle lag are taken so rows
+ * from transactions that commit late are not skipped.
+ * EventLog is treated as append-only, use {@link #rebuild()} after manual fixes.
+ */
+@Service
+public class EventLogRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLogRollupService.class);
+
+    static final String STATE_NAME = "daily";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EventLogMarks marks;
+
+    private final boolean enabled;
+    private final Duration settleLag;
+    private final long chunkSize;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public EventLogRollupService(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher,
+                                 EventLogMarks marks,
+                                 @Value("${stats.rollup.enabled:true}") boolean enabled,
+                                 @Value("${stats.rollup.settle-lag:1m}") Duration settleLag,
+                                 @Value("${stats.rollup.chunk-size:50000}") long chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.marks = marks;
+        this.enabled = enabled;
+        this.settleLag = settleLag;
+        this.chunkSize = chunkSize;
+    }
+
+    // ============================================================
+    // SCHEDULED REFRESH
+    // ============================================================
+
+    @Scheduled(fixedDelayString = "${stats.rollup.refresh-interval-ms:60000}",
+               initialDelayString = "${stats.rollup.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        if (!enabled) return;
+        long events = refresh();
+        if (events > 0) {
+            log.debug("EventLog rollup: {} new events folded in", events);
+        }
+    }
+
+    /**
+     * Folds all settled events above the high-water mark into the rollup.
+     * Returns the number of events processed.
+     */
+    public long refresh() {
+        if (!refreshLock.tryLock()) return 0; // a refresh is already running
+
+        try {
+            Long mark = marks.lastId(STATE_NAME);
+            long from = mark != null ? mark : 0L;
+            Timestamp settledBefore = Timestamp.valueOf(LocalDateTime.now().minus(settleLag));
+
+            Long upper = jdbcTemplate.queryForObject("""
+                    SELECT MAX(id) FROM "EventLog"
+                    WHERE id > ? AND (createdts IS NULL OR createdts <= ?)
+                    """, Long.class, from, settledBefore);
+
+            if (upper == null) return 0;
+
+            long total = 0;
+            while (from < upper) {
+                Long chunkMark = mark;
+                long chunkFrom = from;
+                long chunkTo = Math.min(upper, from + chunkSize);
+
+                List<Bucket> buckets;
+                try {
+                    buckets = transactionTemplate.execute(tx -> foldChunk(chunkMark, chunkFrom, chunkTo));
+                } catch (EventLogMarks.MarkMovedException e) {
+                    log.info("EventLog rollup: ids above {} already folded by another instance", chunkFrom);
+                    break;
+                }
+                mark = chunkTo;
+                from = chunkTo;
+                if (buckets == null || buckets.isEmpty()) continue;
+
+                // events written by other paths (players) only become known here
+                Set<Integer> adIds = new HashSet<>();
+                Set<LocalDate> playDays = new HashSet<>();
+                for (Bucket b : buckets) {
+                    adIds.add(b.adId());
+                    if (b.day() != null) playDays.add(b.day());
+                    total += b.plays();
+                }
+                eventPublisher.publishEvent(new EventLogAppendedEvent(adIds, playDays));
+            }
+            return total;
+
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the rollup and rebuilds it from the whole EventLog.
+     */
+    public long rebuild() {
+        refreshLock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                jdbcTemplate.update("DELETE FROM \"EventLogDaily\"");
+                jdbcTemplate.update("DELETE FROM \"EventLogAdSummary\"");
+                marks.saveId(STATE_NAME, 0L);
+            });
+        } finally {
+            refreshLock.unlock();
+        }
+        return refresh();
+    }
+
+    public long currentHighWaterMark() {
+        Long mark = marks.lastId(STATE_NAME);
+        return mark != null ? mark : 0L;
+    }
+
+    // ============================================================
+    // ONE CHUNK: events with id in (fromId, toId]
+    // ============================================================
+
+    private List<Bucket> foldChunk(Long mark, long fromId, long toId) {
+
+        marks.advanceId(STATE_NAME, mark, toId);
+
+        List<Bucket> buckets = jdbcTemplate.query("""
+                SELECT
+                    mediaassetid,
+                    screenid,
+                    CAST("start" AS DATE) AS playday,
+                    "key",
+                    COUNT(*) AS plays,
+                    COALESCE(SUM(GREATEST(FLOOR(EXTRACT(EPOCH FROM (COALESCE("end","start") - "start"))), 0)), 0) AS seconds,
+                    COALESCE(SUM(EXTRACT(EPOCH FROM (COALESCE("end","start") - "start"))), 0) AS epoch_seconds,
+                    MIN("start") AS first_start,
+                    MAX(CASE WHEN "start" IS NOT NULL THEN COALESCE("end","start") END) AS last_end,
+                    MAX(COALESCE(createdts, LOCALTIMESTAMP)) AS last_created
+                FROM "EventLog"
+                WHERE id > ? AND id <= ?
+                  AND mediaassetid IS NOT NULL
+                GROUP BY mediaassetid, screenid, CAST("start" AS DATE), "key"
+                """,
+                (rs, i) -> new Bucket(
+                        rs.getInt(1),
+                        rs.getObject(2) != null ? rs.getInt(2) : null,
+                        rs.getObject(3, LocalDate.class),
+                        rs.getString(4),
+                        rs.getLong(5),
+                        rs.getLong(6),
+                        rs.getDouble(7),
+                        rs.getObject(8, LocalDateTime.class),
+                        rs.getObject(9, LocalDateTime.class),
+                        rs.getObject(10, LocalDateTime.class)
+                ),
+                fromId, toId);
+
+        if (!buckets.isEmpty()) {
+            upsertBuckets(buckets);
+            upsertAdSummaries(buckets);
+            upsertDaySummaries(buckets);
+        }
+
+        return buckets;
+    }
+
+    private void upsertBuckets(List<Bucket> buckets) {
+
+        List<Object[]> updates = new ArrayList<>(buckets.size());
+        for (Bucket b : buckets) {
+            updates.add(new Object[]{
+                    b.plays(), b.seconds(), b.epochSeconds(),
+                    b.firstStart(), b.firstStart(),
+                    b.lastEnd(), b.lastEnd(),
+                    b.adId(), b.day(), b.screenId(), b.key()
+            });
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate("""
+                UPDATE "EventLogDaily"
+                SET plays         = plays + ?,
+                    seconds       = seconds + ?,
+                    epoch_seconds = epoch_seconds + ?,
+                    first_start   = CASE WHEN first_start IS NULL OR first_start > ? THEN ? ELSE first_start END,
+                    last_end      = CASE WHEN last_end IS NULL OR last_end < ? THEN ? ELSE last_end END
+                WHERE mediaassetid = ?
+                  AND COALESCE(playday, DATE '0001-01-01') = COALESCE(?, DATE '0001-01-01')
+                  AND COALESCE(screenid, -1) = COALESCE(?, -1)
+                  AND COALESCE("key", '') = COALESCE(?, '')
+                """, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Bucket b = buckets.get(i);
+                inserts.add(new Object[]{
+                        b.adId(), b.screenId(), b.day(), b.key(),
+                        b.plays(), b.seconds(), b.epochSeconds(), b.firstStart(), b.lastEnd()
+                });
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO "EventLogDaily"
+                        (mediaassetid, screenid, playday, "key", plays, seconds, epoch_seconds, first_start, last_end)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """, inserts);
+        }
+    }
+
+    // lifetime bounds per ad ("EventLogAdSummary"), same update-then-insert as the buckets
+    private void upsertAdSummaries(List<Bucket> buckets) {
+
+        Map<Integer, LocalDateTime[]> boundsByAd = new LinkedHashMap<>();
+        for (Bucket b : buckets) {
+            LocalDateTime[] bounds = boundsByAd.computeIfAbsent(b.adId(), id -> new LocalDateTime[2]);
+            if (b.firstStart() != null && (bounds[0] == null || b.firstStart().isBefore(bounds[0]))) bounds[0] = b.firstStart();
+            if (b.lastEnd()    != null && (bounds[1] == null || b.lastEnd().isAfter(bounds[1])))     bounds[1] = b.lastEnd();
+        }
+
+        List<Object[]> updates = new ArrayList<>(boundsByAd.size());
+        for (Map.Entry<Integer, LocalDateTime[]> e : boundsByAd.entrySet()) {
+            LocalDateTime[] bounds = e.getValue();
+            updates.add(new Object[]{bounds[0], bounds[0], bounds[1], bounds[1], e.getKey()});
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate("""
+                UPDATE "EventLogAdSummary"
+                SET first_start = CASE WHEN first_start IS NULL OR first_start > ? THEN ? ELSE first_start END,
+                    last_end    = CASE WHEN last_end IS NULL OR last_end < ? THEN ? ELSE last_end END
+                WHERE mediaassetid = ?
+                """, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Object[] u = updates.get(i);
+                inserts.add(new Object[]{u[4], u[0], u[2]});
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO \"EventLogAdSummary\" (mediaassetid, first_start, last_end) VALUES (?, ?, ?)",
+                    inserts);
+        }
+    }
+
+    // last write per play day ("EventLogDaySummary"), same update-then-insert as the buckets
+    private void upsertDaySummaries(List<Bucket> buckets) {
+
+        Map<LocalDate, LocalDateTime> lastCreatedByDay = new LinkedHashMap<>();
+        for (Bucket b : buckets) {
+            if (b.day() == null || b.lastCreated() == null) continue;
+            lastCreatedByDay.merge(b.day(), b.lastCreated(), (x, y) -> x.isAfter(y) ? x : y);
+        }
+        if (lastCreatedByDay.isEmpty()) return;
+
+        List<Object[]> updates = new ArrayList<>(lastCreatedByDay.size());
+        for (Map.Entry<LocalDate, LocalDateTime> e : lastCreatedByDay.entrySet()) {
+            updates.add(new Object[]{e.getValue(), e.getValue(), e.getKey()});
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate("""
+                UPDATE "EventLogDaySummary"
+                SET changed_at = CASE WHEN changed_at < ? THEN ? ELSE changed_at END
+                WHERE playday = ?
+                """, updates);
+
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Object[] u = updates.get(i);
+                inserts.add(new Object[]{u[2], u[0]});
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO \"EventLogDaySummary\" (playday, changed_at) VALUES (?, ?)",
+                    inserts);
+        }
+    }
+
+    // delta of one (ad, screen, day, key) bucket
+    private record Bucket(int adId,
+                          Integer screenId,
+                          LocalDate day,
+                          String key,
+                          long plays,
+                          long seconds,
+                          double epochSeconds,
+                          LocalDateTime firstStart,
+                          LocalDateTime lastEnd,
+                          LocalDateTime lastCreated) {}
+}
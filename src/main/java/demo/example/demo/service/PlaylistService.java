@@ -0,0 +1,246 @@
+package demo.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.example.demo.dto.Playlist;
+import demo.example.demo.dto.PlaylistItem;
+import demo.example.demo.dto.ScheduleEntry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Daily playlists of the screens, for the players to poll.
+ *
+ * For today and the next days-ahead days every screen's playlist is built in
+ * advance from the {@link ScheduleIndex} and kept as ready-to-send JSON with
+ * its ETag, so a poll is a map lookup. Other days are built on request, also
+ * without touching the database.
+ *
+ * Playlists are rebuilt when the schedule index reports changed screens, when
+ * screens or media assets change (checked every refresh-interval) and when
+ * the day rolls over.
+ */
+@Service
+public class PlaylistService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaylistService.class);
+
+    private static final Comparator<PlaylistItem> PLAY_ORDER =
+            Comparator.comparing(PlaylistItem::ordernr, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(PlaylistItem::mediaAssetId);
+
+    private static final Comparator<PlaylistItem.Window> WINDOW_ORDER =
+            Comparator.comparing(PlaylistItem.Window::from, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(PlaylistItem.Window::to, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final ScheduleIndex scheduleIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final int daysAhead;
+
+    private final Object rebuildLock = new Object();
+
+    private volatile Map<Integer, Asset> assets = Map.of();
+    private volatile Map<Integer, ScreenRef> screensById = Map.of();
+    private volatile Map<UUID, ScreenRef> screensByUuid = Map.of();
+
+    private final Map<Key, Rendered> precomputed = new ConcurrentHashMap<>();
+    private volatile LocalDate precomputedFrom;
+
+    public PlaylistService(ScheduleIndex scheduleIndex,
+                           JdbcTemplate jdbcTemplate,
+                           ObjectMapper objectMapper,
+                           @Value("${playlist.days-ahead:1}") int daysAhead) {
+        this.scheduleIndex = scheduleIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.daysAhead = daysAhead;
+    }
+
+    /**
+     * A ready playlist: the value, its JSON and the ETag of that JSON.
+     */
+    public record Rendered(Playlist playlist, byte[] json, String eTag) {}
+
+    private record Key(int screenId, LocalDate day) {}
+
+    private record ScreenRef(int id, UUID uuid, boolean active) {}
+
+    private record Asset(int id, String name, String url, String filename, String mimetype,
+                         Integer ordernr, Double duration) {}
+
+    @PostConstruct
+    void build() {
+        refresh();
+    }
+
+    // ============================================================
+    // LOOKUP
+    // ============================================================
+
+    /**
+     * Playlist of the screen with this uuid on {@code day}, null for an unknown screen.
+     */
+    public Rendered playlist(UUID screenUuid, LocalDate day) {
+        ScreenRef screen = screensByUuid.get(screenUuid);
+        if (screen == null) return null;
+
+        Rendered ready = precomputed.get(new Key(screen.id(), day));
+        return ready != null ? ready : render(screen, day);
+    }
+
+    // ============================================================
+    // REBUILDS
+    // ============================================================
+
+    /**
+     * Reloads screens and media assets; rebuilds all precomputed playlists
+     * when one of them changed or a new day started.
+     */
+    @Scheduled(fixedDelayString = "${playlist.refresh-interval-ms:30000}",
+               initialDelayString = "${playlist.refresh-interval-ms:30000}")
+    public void refresh() {
+        synchronized (rebuildLock) {
+            boolean changed = loadScreensAndAssets();
+            LocalDate today = LocalDate.now();
+
+            if (changed || !today.equals(precomputedFrom)) {
+                rebuildAll(today);
+            }
+        }
+    }
+
+    @EventListener
+    public void onScheduleIndexChanged(ScheduleIndexChangedEvent event) {
+        synchronized (rebuildLock) {
+            if (precomputedFrom == null) return;
+            for (Integer screenId : event.screenIds()) {
+                ScreenRef screen = screensById.get(screenId);
+                if (screen == null) continue; // unknown yet, comes with the next refresh
+                for (int d = 0; d <= daysAhead; d++) {
+                    LocalDate day = precomputedFrom.plusDays(d);
+                    precomputed.put(new Key(screen.id(), day), render(screen, day));
+                }
+            }
+        }
+    }
+
+    private void rebuildAll(LocalDate today) {
+        Map<Key, Rendered> fresh = new HashMap<>();
+        for (ScreenRef screen : screensById.values()) {
+            for (int d = 0; d <= daysAhead; d++) {
+                LocalDate day = today.plusDays(d);
+                fresh.put(new Key(screen.id(), day), render(screen, day));
+            }
+        }
+
+        precomputed.putAll(fresh);
+        precomputed.keySet().retainAll(fresh.keySet());
+        precomputedFrom = today;
+
+        log.debug("Playlists rebuilt: {} screens, {} days", screensById.size(), daysAhead + 1);
+    }
+
+    // returns true when screens or assets differ from the previous load
+    private boolean loadScreensAndAssets() {
+        Map<Integer, ScreenRef> screens = new HashMap<>();
+        jdbcTemplate.query("SELECT id, uuid, active FROM \"Screen\"", rs -> {
+            ScreenRef s = new ScreenRef(rs.getInt(1), rs.getObject(2, UUID.class), rs.getBoolean(3));
+            screens.put(s.id(), s);
+        });
+
+        Map<Integer, Asset> loadedAssets = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT id, name, url, filename, mimetype, ordernr, duration
+                FROM "MediaAsset"
+                """,
+                rs -> {
+                    Asset a = new Asset(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getString(4),
+                            rs.getString(5),
+                            rs.getObject(6, Integer.class),
+                            rs.getObject(7, Double.class));
+                    loadedAssets.put(a.id(), a);
+                });
+
+        boolean changed = !screens.equals(screensById) || !loadedAssets.equals(assets);
+        if (changed) {
+            Map<UUID, ScreenRef> byUuid = new HashMap<>();
+            for (ScreenRef s : screens.values()) {
+                if (s.uuid() != null) byUuid.put(s.uuid(), s);
+            }
+            assets = Map.copyOf(loadedAssets);
+            screensById = Map.copyOf(screens);
+            screensByUuid = Map.copyOf(byUuid);
+        }
+        return changed;
+    }
+
+    // ============================================================
+    // BUILD ONE PLAYLIST (memory only)
+    // ============================================================
+
+    private Rendered render(ScreenRef screen, LocalDate day) {
+        Playlist playlist = buildPlaylist(screen, day);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(playlist);
+            String eTag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            return new Rendered(playlist, json, eTag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize playlist of screen " + screen.id(), e);
+        }
+    }
+
+    private Playlist buildPlaylist(ScreenRef screen, LocalDate day) {
+
+        if (!screen.active()) {
+            return new Playlist(screen.id(), day, List.of(), 0L);
+        }
+
+        Map<Integer, double[]> playsByAsset = new LinkedHashMap<>();
+        Map<Integer, Set<PlaylistItem.Window>> windowsByAsset = new HashMap<>();
+
+        for (ScheduleEntry e : scheduleIndex.forScreenOn(screen.id(), day)) {
+            if (e.mediaAssetId() == null || !assets.containsKey(e.mediaAssetId())) continue;
+
+            playsByAsset.computeIfAbsent(e.mediaAssetId(), k -> new double[1])[0] +=
+                    (e.duration() != null ? e.duration() : 0d);
+            windowsByAsset.computeIfAbsent(e.mediaAssetId(), k -> new HashSet<>())
+                    .add(new PlaylistItem.Window(e.fromtime(), e.totime()));
+        }
+
+        List<PlaylistItem> items = new ArrayList<>(playsByAsset.size());
+        double totalSeconds = 0;
+
+        for (Map.Entry<Integer, double[]> p : playsByAsset.entrySet()) {
+            Asset a = assets.get(p.getKey());
+            double playsPerDay = p.getValue()[0];
+
+            List<PlaylistItem.Window> windows = new ArrayList<>(windowsByAsset.get(p.getKey()));
+            windows.sort(WINDOW_ORDER);
+
+            items.add(new PlaylistItem(a.id(), a.name(), a.url(), a.filename(), a.mimetype(),
+                    a.ordernr(), a.duration(), playsPerDay, List.copyOf(windows)));
+
+            if (a.duration() != null) totalSeconds += a.duration() * playsPerDay;
+        }
+
+        items.sort(PLAY_ORDER);
+
+        return new Playlist(screen.id(), day, List.copyOf(items), Math.round(totalSeconds));
+    }
+}
@@ -0,0 +1,153 @@
+package demo.example.demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many database reads run at once, per class of query, so that a
+ * burst of one class cannot take every pooled connection.
+ *
+ * HEAVY reads scan many rows (per-screen stats of an ad, all-ads periods,
+ * raw event scans), CHEAP reads are lookups and summary reads (ads, the list
+ * page's lifetime totals). Each class has its own fair semaphore: PDF exports
+ * queue up behind each other for the heavy permits while the list page keeps
+ * its cheap ones. Keep heavy-permits + cheap-permits at or below the
+ * connection pool size.
+ *
+ * Permits are re-entrant per thread and class, so a unit of work can take its
+ * permit before opening its transaction and the reads inside pass through.
+ * The wait for a permit is timed as "db.limiter.wait"; a read that waits
+ * longer than acquire-timeout fails with {@link BusyException} (503).
+ */
+@Component
+public class QueryLimiter {
+
+    public enum Kind { HEAVY, CHEAP }
+
+    /**
+     * No permit within acquire-timeout: the database is saturated with reads of this kind.
+     */
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class BusyException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BusyException(Kind kind, Duration waited) {
+            super("Too many " + kind.name().toLowerCase() + " queries running, no permit within " + waited);
+        }
+    }
+
+    private final Duration acquireTimeout;
+    private final Map<Kind, Limit> limits = new EnumMap<>(Kind.class);
+
+    // permits of each kind held by the current thread
+    private final ThreadLocal<int[]> held = ThreadLocal.withInitial(() -> new int[Kind.values().length]);
+
+    public QueryLimiter(MeterRegistry meterRegistry,
+                        @Value("${db.limiter.heavy-permits:4}") int heavyPermits,
+                        @Value("${db.limiter.cheap-permits:6}") int cheapPermits,
+                        @Value("${db.limiter.acquire-timeout:10s}") Duration acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+        limits.put(Kind.HEAVY, new Limit(Kind.HEAVY, heavyPermits, meterRegistry));
+        limits.put(Kind.CHEAP, new Limit(Kind.CHEAP, cheapPermits, meterRegistry));
+    }
+
+    public <T> T heavy(Supplier<T> query) {
+        return call(Kind.HEAVY, query);
+    }
+
+    public <T> T cheap(Supplier<T> query) {
+        return call(Kind.CHEAP, query);
+    }
+
+    /**
+     * Runs {@code query} holding a permit of {@code kind}, waiting (in arrival
+     * order) for one if all are taken.
+     */
+    public <T> T call(Kind kind, Supplier<T> query) {
+        int[] counts = held.get();
+        if (counts[kind.ordinal()] > 0) {
+            return query.get();
+        }
+
+        Limit limit = limits.get(kind);
+        limit.acquire(acquireTimeout);
+        counts[kind.ordinal()]++;
+        try {
+            return query.get();
+        } finally {
+            counts[kind.ordinal()]--;
+            limit.semaphore.release();
+        }
+    }
+
+    public int available(Kind kind) {
+        return limits.get(kind).semaphore.availablePermits();
+    }
+
+    public int waiting(Kind kind) {
+        return limits.get(kind).semaphore.getQueueLength();
+    }
+
+    // ============================================================
+    // ONE KIND
+    // ============================================================
+
+    private static final class Limit {
+
+        final Kind kind;
+        final Semaphore semaphore;
+        final Timer waitTimer;
+        final Counter rejected;
+
+        Limit(Kind kind, int permits, MeterRegistry meterRegistry) {
+            this.kind = kind;
+            this.semaphore = new Semaphore(permits, true);
+
+            String tag = kind.name().toLowerCase();
+            this.waitTimer = Timer.builder("db.limiter.wait")
+                    .description("Time a query waited for a permit")
+                    .tag("kind", tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.rejected = meterRegistry.counter("db.limiter.rejected", "kind", tag);
+            Gauge.builder("db.limiter.waiting", semaphore, Semaphore::getQueueLength)
+                    .description("Queries waiting for a permit")
+                    .tag("kind", tag)
+                    .register(meterRegistry);
+            Gauge.builder("db.limiter.active", semaphore, s -> permits - s.availablePermits())
+                    .description("Queries holding a permit")
+                    .tag("kind", tag)
+                    .register(meterRegistry);
+        }
+
+        void acquire(Duration timeout) {
+            long started = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = semaphore.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusyException(kind, Duration.ofNanos(System.nanoTime() - started));
+            } finally {
+                waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                rejected.increment();
+                throw new BusyException(kind, timeout);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package demo.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Keeps reads of recent data off the read replica.
+ *
+ * Read-only transactions go to the replica (see ReadReplicaConfig), which
+ * trails the primary by up to max-lag. A read whose window ends within the
+ * last max-lag, or is open-ended like the lifetime stats, runs in a scope
+ * that sends its connection to the primary instead. The choice is made when
+ * the transaction fetches its connection, so the scope has to be entered
+ * before the transaction's first statement. Without a replica configured the
+ * scopes change nothing.
+ */
+@Component
+public class ReplicaStalenessGuard {
+
+    // > 0 while the current thread is inside a scope that needs the primary
+    private static final ThreadLocal<int[]> PRIMARY_SCOPES = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final Duration maxLag;
+
+    public ReplicaStalenessGuard(@Value("${db.replica.max-lag:30s}") Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    /**
+     * True when read-only connections fetched now must come from the primary.
+     */
+    public static boolean primaryRequired() {
+        return PRIMARY_SCOPES.get()[0] > 0;
+    }
+
+    /**
+     * Runs a read of the window ending (exclusive) at {@code end}; null means
+     * open-ended.
+     */
+    public <T> T forWindow(LocalDateTime end, Supplier<T> read) {
+        return needsPrimary(end) ? onPrimary(read) : read.get();
+    }
+
+    /**
+     * Runs a read of whole days up to and including {@code lastDay}; null
+     * means open-ended.
+     */
+    public <T> T forDays(LocalDate lastDay, Supplier<T> read) {
+        return forWindow(lastDay != null ? lastDay.plusDays(1).atStartOfDay() : null, read);
+    }
+
+    /**
+     * Runs a read that includes the newest rows (lifetime totals, bounds) on the primary.
+     */
+    public <T> T onPrimary(Supplier<T> read) {
+        int[] scopes = PRIMARY_SCOPES.get();
+        scopes[0]++;
+        try {
+            return read.get();
+        } finally {
+            scopes[0]--;
+        }
+    }
+
+    boolean needsPrimary(LocalDateTime end) {
+        return end == null || end.isAfter(LocalDateTime.now().minus(maxLag));
+    }
+}
@@ -0,0 +1,332 @@
+package demo.example.demo.service;
+
+import demo.example.demo.dto.ScheduleEntry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of all "Schedule" rows, answers "what is active" without
+ * a database round trip.
+ *
+ * Rows are bucketed by screen and by media asset; every bucket is a static
+ * interval tree over [fromdate, todate], the fromtime/totime window is checked
+ * on the few rows that cover the day. Buckets are immutable and published as
+ * one snapshot, readers never lock.
+ *
+ * Built at startup and refreshed every refresh-interval: the small projection
+ * of the table is read again and only buckets with new, changed or deleted
+ * rows are rebuilt, then a {@link ScheduleIndexChangedEvent} is published.
+ * Code that writes schedules can call {@link #refresh()} right away.
+ */
+@Component
+public class ScheduleIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleIndex.class);
+
+    public static final String ACTIVE = "Active";
+    public static final String SCHEDULED = "Scheduled";
+    public static final String EXPIRED = "Expired";
+    public static final String INACTIVE = "Inactive";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), Map.of());
+
+    public ScheduleIndex(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    void build() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${schedule.index.refresh-interval-ms:30000}",
+               initialDelayString = "${schedule.index.refresh-interval-ms:30000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            log.warn("Schedule index refresh failed, keeping the previous snapshot", ex);
+        }
+    }
+
+    // ============================================================
+    // QUERIES
+    // ============================================================
+
+    /**
+     * Schedules of the screen active at {@code at} (day and time window).
+     */
+    public List<ScheduleEntry> activeForScreen(int screenId, LocalDateTime at) {
+        List<ScheduleEntry> result = new ArrayList<>();
+        LocalTime time = at.toLocalTime();
+        for (ScheduleEntry e : forScreenOn(screenId, at.toLocalDate())) {
+            if (e.coversTime(time)) result.add(e);
+        }
+        return result;
+    }
+
+    /**
+     * Schedules of the screen covering {@code day}, whatever their time window.
+     */
+    public List<ScheduleEntry> forScreenOn(int screenId, LocalDate day) {
+        Bucket bucket = snapshot.byScreen().get(screenId);
+        return bucket != null ? bucket.tree().stab(day.toEpochDay()) : List.of();
+    }
+
+    /**
+     * Schedules of the screen covering at least one day of [from, to].
+     */
+    public List<ScheduleEntry> forScreenBetween(int screenId, LocalDate from, LocalDate to) {
+        Bucket bucket = snapshot.byScreen().get(screenId);
+        return bucket != null ? bucket.tree().overlapping(from.toEpochDay(), to.toEpochDay()) : List.of();
+    }
+
+    /**
+     * Schedules of the ad covering {@code day}, whatever their time window.
+     */
+    public List<ScheduleEntry> forAdOn(int mediaAssetId, LocalDate day) {
+        Bucket bucket = snapshot.byAd().get(mediaAssetId);
+        return bucket != null ? bucket.tree().stab(day.toEpochDay()) : List.of();
+    }
+
+    /**
+     * "Active" when a schedule of the ad covers {@code at}, otherwise
+     * "Scheduled" if one starts later, "Expired" if one already ended,
+     * "Inactive" without schedules.
+     */
+    public String adStatus(int mediaAssetId, LocalDateTime at) {
+        Bucket bucket = snapshot.byAd().get(mediaAssetId);
+        if (bucket == null) return INACTIVE;
+
+        long day = at.toLocalDate().toEpochDay();
+        LocalTime time = at.toLocalTime();
+
+        for (ScheduleEntry e : bucket.tree().stab(day)) {
+            if (e.coversTime(time)) return ACTIVE;
+        }
+
+        if (bucket.maxFromDay() > day) return SCHEDULED;
+        if (bucket.minToDay() < day)   return EXPIRED;
+        return INACTIVE;
+    }
+
+    public int size() {
+        return snapshot.byId().size();
+    }
+
+    // ============================================================
+    // REFRESH
+    // ============================================================
+
+    /**
+     * Re-reads the table and rebuilds the buckets touched by changed rows.
+     * Returns the number of new, changed and deleted rows.
+     */
+    public int refresh() {
+        refreshLock.lock();
+        try {
+            Map<Integer, ScheduleEntry> loaded = new HashMap<>();
+            jdbcTemplate.query("""
+                    SELECT id, screenid, mediaassetid, fromdate, todate, fromtime, totime, duration
+                    FROM "Schedule"
+                    """,
+                    rs -> {
+                        ScheduleEntry e = new ScheduleEntry(
+                                rs.getInt(1),
+                                rs.getObject(2, Integer.class),
+                                rs.getObject(3, Integer.class),
+                                rs.getObject(4, LocalDate.class),
+                                rs.getObject(5, LocalDate.class),
+                                rs.getObject(6, LocalTime.class),
+                                rs.getObject(7, LocalTime.class),
+                                rs.getObject(8, Double.class));
+                        loaded.put(e.id(), e);
+                    });
+
+            Snapshot old = snapshot;
+            Set<Integer> screens = new HashSet<>();
+            Set<Integer> ads = new HashSet<>();
+            int changed = 0;
+
+            for (ScheduleEntry e : loaded.values()) {
+                ScheduleEntry before = old.byId().get(e.id());
+                if (!e.equals(before)) {
+                    touch(before, screens, ads);
+                    touch(e, screens, ads);
+                    changed++;
+                }
+            }
+            for (ScheduleEntry before : old.byId().values()) {
+                if (!loaded.containsKey(before.id())) {
+                    touch(before, screens, ads);
+                    changed++;
+                }
+            }
+
+            if (changed == 0) return 0;
+
+            Map<Integer, List<ScheduleEntry>> screenRows = new HashMap<>();
+            Map<Integer, List<ScheduleEntry>> adRows = new HashMap<>();
+            for (ScheduleEntry e : loaded.values()) {
+                if (e.screenId() != null && screens.contains(e.screenId())) {
+                    screenRows.computeIfAbsent(e.screenId(), k -> new ArrayList<>()).add(e);
+                }
+                if (e.mediaAssetId() != null && ads.contains(e.mediaAssetId())) {
+                    adRows.computeIfAbsent(e.mediaAssetId(), k -> new ArrayList<>()).add(e);
+                }
+            }
+
+            snapshot = new Snapshot(
+                    Map.copyOf(loaded),
+                    rebuild(old.byScreen(), screens, screenRows),
+                    rebuild(old.byAd(), ads, adRows));
+
+            log.debug("Schedule index: {} rows changed, {} screens / {} ads rebuilt", changed, screens.size(), ads.size());
+            eventPublisher.publishEvent(new ScheduleIndexChangedEvent(screens, ads));
+            return changed;
+
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private static void touch(ScheduleEntry e, Set<Integer> screens, Set<Integer> ads) {
+        if (e == null) return;
+        if (e.screenId() != null) screens.add(e.screenId());
+        if (e.mediaAssetId() != null) ads.add(e.mediaAssetId());
+    }
+
+    private static Map<Integer, Bucket> rebuild(Map<Integer, Bucket> old,
+                                                Set<Integer> touched,
+                                                Map<Integer, List<ScheduleEntry>> rows) {
+        Map<Integer, Bucket> result = new HashMap<>(old);
+        for (Integer key : touched) {
+            List<ScheduleEntry> entries = rows.get(key);
+            if (entries == null) {
+                result.remove(key);
+            } else {
+                result.put(key, Bucket.of(entries));
+            }
+        }
+        return Map.copyOf(result);
+    }
+
+    // ============================================================
+    // SNAPSHOT + INTERVAL TREE
+    // ============================================================
+
+    private record Snapshot(Map<Integer, ScheduleEntry> byId,
+                            Map<Integer, Bucket> byScreen,
+                            Map<Integer, Bucket> byAd) {}
+
+    // maxFromDay / minToDay: latest start and earliest end of the bucket (status "Scheduled" / "Expired")
+    private record Bucket(IntervalTree tree, long maxFromDay, long minToDay) {
+
+        static Bucket of(List<ScheduleEntry> entries) {
+            long maxFrom = Long.MIN_VALUE;
+            long minTo = Long.MAX_VALUE;
+            for (ScheduleEntry e : entries) {
+                if (e.fromdate() != null) maxFrom = Math.max(maxFrom, e.fromdate().toEpochDay());
+                if (e.todate() != null)   minTo = Math.min(minTo, e.todate().toEpochDay());
+            }
+            return new Bucket(new IntervalTree(entries), maxFrom, minTo);
+        }
+    }
+
+    /**
+     * Static interval tree over [fromdate, todate] in epoch days, laid out as
+     * an implicit binary search tree over the entries sorted by start:
+     * the root of [lo, hi) is the middle element, maxEnd holds the largest end
+     * of its subtree. A stabbing query costs O(log n + matches).
+     */
+    static final class IntervalTree {
+
+        private final ScheduleEntry[] entries;
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] maxEnd;
+
+        IntervalTree(List<ScheduleEntry> list) {
+            entries = list.toArray(new ScheduleEntry[0]);
+            Arrays.sort(entries, Comparator.comparingLong(IntervalTree::startDay));
+
+            int n = entries.length;
+            starts = new long[n];
+            ends = new long[n];
+            maxEnd = new long[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = startDay(entries[i]);
+                ends[i] = endDay(entries[i]);
+            }
+            build(0, n);
+        }
+
+        private long build(int lo, int hi) {
+            if (lo >= hi) return Long.MIN_VALUE;
+            int mid = (lo + hi) >>> 1;
+            long max = Math.max(ends[mid], Math.max(build(lo, mid), build(mid + 1, hi)));
+            maxEnd[mid] = max;
+            return max;
+        }
+
+        // all entries with start <= day <= end
+        List<ScheduleEntry> stab(long day) {
+            List<ScheduleEntry> out = new ArrayList<>();
+            stab(0, entries.length, day, out);
+            return out;
+        }
+
+        private void stab(int lo, int hi, long day, List<ScheduleEntry> out) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (maxEnd[mid] < day) return;      // nothing in this subtree reaches the day
+                stab(lo, mid, day, out);
+                if (starts[mid] > day) return;      // mid and everything right of it start later
+                if (ends[mid] >= day) out.add(entries[mid]);
+                lo = mid + 1;
+            }
+        }
+
+        // all entries with start <= to and end >= from
+        List<ScheduleEntry> overlapping(long from, long to) {
+            List<ScheduleEntry> out = new ArrayList<>();
+            overlapping(0, entries.length, from, to, out);
+            return out;
+        }
+
+        private void overlapping(int lo, int hi, long from, long to, List<ScheduleEntry> out) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (maxEnd[mid] < from) return;
+                overlapping(lo, mid, from, to, out);
+                if (starts[mid] > to) return;
+                if (ends[mid] >= from) out.add(entries[mid]);
+                lo = mid + 1;
+            }
+        }
+
+        private static long startDay(ScheduleEntry e) {
+            return e.fromdate() != null ? e.fromdate().toEpochDay() : Long.MIN_VALUE;
+        }
+
+        private static long endDay(ScheduleEntry e) {
+            return e.todate() != null ? e.todate().toEpochDay() : Long.MAX_VALUE;
+        }
+    }
+}
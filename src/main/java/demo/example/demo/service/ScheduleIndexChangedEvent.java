@@ -0,0 +1,8 @@
+package demo.example.demo.service;
+
+import java.util.Set;
+
+/**
+ * Published by ScheduleIndex after a refresh changed rows of these screens / ads.
+ */
+public record ScheduleIndexChangedEvent(Set<Integer> screenIds, Set<Integer> mediaAssetIds) {}
@@ -0,0 +1,126 @@
+package demo.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies at startup that the indexes the hot queries rely on exist and are
+ * valid (PostgreSQL only). They are created by the Flyway migrations in
+ * db/migration; an index dropped by hand or left INVALID by a failed
+ * concurrent build is logged, or fails the startup with fail-on-missing.
+ */
+@Component
+public class SchemaIndexCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaIndexCheck.class);
+
+    /**
+     * An index the application expects, with the queries that need it.
+     */
+    public record ExpectedIndex(String table, String name, String usedBy) {}
+
+    static final List<ExpectedIndex> EXPECTED = List.of(
+            new ExpectedIndex("EventLog", "EventLog_ad_start_cover_idx",
+                    "EventExportService per-ad scans, per-ad stats tail"),
+            new ExpectedIndex("EventLog", "EventLog_start_brin",
+                    "EventLogDailyRepository.getStats / getStatsPage, all-ads stats tail"),
+            new ExpectedIndex("EventLog", "EventLog_created_brin",
+                    "EventExportService.scanCreated, columnar export"),
+            new ExpectedIndex("Schedule", "Schedule_screen_dates_idx",
+                    "ScheduleRepository.findOverlappingForScreen / findAllActiveSchedulesByScreenIdAndDate"),
+            new ExpectedIndex("Schedule", "Schedule_ad_dates_idx",
+                    "ScheduleRepository.findByMediaAssetIdAndDateRange"),
+            new ExpectedIndex("EventLogDaily", "EventLogDaily_bucket_uidx",
+                    "EventLogRollupService upserts"),
+            new ExpectedIndex("EventLogDaily", "EventLogDaily_ad_day_idx",
+                    "EventLogDailyRepository per-ad reads"),
+            new ExpectedIndex("EventLogDaily", "EventLogDaily_day_idx",
+                    "EventLogDailyRepository all-ads reads"),
+            new ExpectedIndex("ScheduleDelivery", "ScheduleDelivery_day_idx",
+                    "DeliveryReconciliationService day close"),
+            new ExpectedIndex("ScheduleDelivery", "ScheduleDelivery_ad_day_idx",
+                    "DeliveryReconciliationService.deliveries"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean failOnMissing;
+
+    public SchemaIndexCheck(JdbcTemplate jdbcTemplate,
+                            @Value("${db.index-check.enabled:true}") boolean enabled,
+                            @Value("${db.index-check.fail-on-missing:false}") boolean failOnMissing) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.failOnMissing = failOnMissing;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkOnStartup() {
+        if (!enabled) return;
+
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            log.debug("Index check skipped on {}", product);
+            return;
+        }
+
+        List<String> problems = problems(existingIndexes());
+        if (problems.isEmpty()) {
+            log.info("Index check: all {} expected indexes present", EXPECTED.size());
+            return;
+        }
+
+        problems.forEach(p -> log.warn("Index check: {}", p));
+        if (failOnMissing) {
+            throw new IllegalStateException(problems.size() + " expected index(es) missing or invalid, see the log;"
+                    + " run the Flyway migrations or set db.index-check.fail-on-missing=false");
+        }
+    }
+
+    /**
+     * Index name to "is valid" for every index of the current schema.
+     */
+    Map<String, Boolean> existingIndexes() {
+        Map<String, Boolean> indexes = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT t.relname, c.relname, i.indisvalid
+                FROM pg_index i
+                JOIN pg_class c ON c.oid = i.indexrelid
+                JOIN pg_class t ON t.oid = i.indrelid
+                JOIN pg_namespace n ON n.oid = t.relnamespace
+                WHERE n.nspname = current_schema()
+                """, rs -> {
+            indexes.put(rs.getString(1) + "." + rs.getString(2), rs.getBoolean(3));
+        });
+        return indexes;
+    }
+
+    /**
+     * One message per expected index that is missing or invalid, given the
+     * existing indexes keyed "table.index".
+     */
+    static List<String> problems(Map<String, Boolean> existing) {
+        List<String> problems = new ArrayList<>();
+        for (ExpectedIndex index : EXPECTED) {
+            Boolean valid = existing.get(index.table() + "." + index.name());
+            if (valid == null) {
+                problems.add("\"" + index.name() + "\" on \"" + index.table() + "\" is missing (" + index.usedBy() + ")");
+            } else if (!valid) {
+                problems.add("\"" + index.name() + "\" on \"" + index.table() + "\" is INVALID, drop and rebuild it ("
+                        + index.usedBy() + ")");
+            }
+        }
+        return problems;
+    }
+}
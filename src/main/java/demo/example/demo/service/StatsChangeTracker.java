@@ -0,0 +1,59 @@
+package demo.example.demo.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Last-Modified of closed stats periods, for conditional GETs on /api/stats.
+ *
+ * A period is closed once all its days are in the past. It changes only when
+ * events for its days arrive late (players that were offline). The last
+ * write of a day is read from the database, so every instance answers the
+ * same: "EventLogDaySummary" for the rolled-up events, the createdts of the
+ * tail above the rollup mark for the rest.
+ */
+@Component
+public class StatsChangeTracker {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock = Clock.systemDefaultZone();
+
+    public StatsChangeTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Last change of the days [fromDay, toDay), only meaningful for a closed period.
+     */
+    public Instant lastModified(LocalDate fromDay, LocalDate toDay) {
+        Instant closedAt = toDay.atStartOfDay(clock.getZone()).toInstant();
+
+        LocalDateTime written = jdbcTemplate.queryForObject("""
+                SELECT MAX(u.written) FROM (
+                    SELECT MAX(d.changed_at) AS written
+                    FROM "EventLogDaySummary" d
+                    WHERE d.playday >= ? AND d.playday < ?
+                    UNION ALL
+                    SELECT MAX(COALESCE(e.createdts, LOCALTIMESTAMP))
+                    FROM "EventLog" e
+                    WHERE e."start" >= ? AND e."start" < ?
+                      AND e.id > (SELECT COALESCE(MAX(r.last_id), 0) FROM "EventLogRollupState" r WHERE r.name = 'daily')
+                ) u
+                """, LocalDateTime.class,
+                fromDay, toDay, Timestamp.valueOf(fromDay.atStartOfDay()), Timestamp.valueOf(toDay.atStartOfDay()));
+
+        if (written == null) return closedAt;
+        Instant last = written.atZone(clock.getZone()).toInstant();
+        return last.isAfter(closedAt) ? last : closedAt;
+    }
+
+    public LocalDate today() {
+        return LocalDate.now(clock);
+    }
+}
@@ -0,0 +1,69 @@
+-- Turns "EventLog" into a table partitioned by month on "start" (PostgreSQL 12+).
+--
+-- Run once, by hand, in a quiet moment, after the Flyway migrations (V3 and V5
+-- build the "EventLog" indexes this script carries over):
+--     psql -v ON_ERROR_STOP=1 -f event-log-partitioning.sql
+-- then set eventlog.partitions.enabled=true (EventLogPartitionService).
+--
+-- Nothing is copied here: the existing table becomes the DEFAULT partition
+-- "EventLog_default" of a new partitioned "EventLog" with the same columns,
+-- so the switch takes seconds whatever the size. EventLogPartitionService then
+-- creates the monthly partitions ahead of time; for a month that still has
+-- rows in "EventLog_default" it moves them over while creating the partition.
+-- Older months are moved the same way, a few per maintenance run, starting at
+-- eventlog.partitions.migrate-from.
+--
+-- "EventLog_default" keeps a CHECK constraint that holds "start" below the
+-- month after next (or NULL), so attaching a partition from that month on does
+-- not scan it. A row with "start" past the months-ahead partitions is
+-- rejected rather than landing in the default partition.
+--
+-- Ids keep growing from the old maximum, the rollup high-water marks stay valid.
+
+-- 1. indexes the partitioned table will need, built without blocking writers
+--    (CREATE INDEX on the parent below attaches them instead of building new ones)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS "EventLog_default_id_idx" ON "EventLog" (id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS "EventLog_ad_start_cover_idx"
+    ON "EventLog" (mediaassetid, "start") INCLUDE ("end", screenid);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS "EventLog_start_brin" ON "EventLog" USING BRIN ("start");
+CREATE INDEX CONCURRENTLY IF NOT EXISTS "EventLog_created_brin" ON "EventLog" USING BRIN (createdts);
+
+-- 2. the range of the future default partition, validated without blocking writers
+SELECT (date_trunc('month', now()) + INTERVAL '2 months')::date AS default_bound \gset
+ALTER TABLE "EventLog" ADD CONSTRAINT "EventLog_default_range"
+    CHECK ("start" IS NULL OR "start" < :'default_bound') NOT VALID;
+ALTER TABLE "EventLog" VALIDATE CONSTRAINT "EventLog_default_range";
+
+-- 3. the switch
+BEGIN;
+
+LOCK TABLE "EventLog" IN ACCESS EXCLUSIVE MODE;
+
+-- the id generator moves to the parent
+CREATE SEQUENCE "EventLog_part_id_seq" AS BIGINT;
+SELECT setval('"EventLog_part_id_seq"', (SELECT COALESCE(MAX(id), 0) + 1 FROM "EventLog"), false);
+ALTER TABLE "EventLog" ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE "EventLog" ALTER COLUMN id DROP DEFAULT;
+
+ALTER TABLE "EventLog" RENAME TO "EventLog_default";
+-- the parent takes over the index names SchemaIndexCheck looks for
+ALTER INDEX "EventLog_ad_start_cover_idx" RENAME TO "EventLog_default_ad_start_cover_idx";
+ALTER INDEX "EventLog_start_brin" RENAME TO "EventLog_default_start_brin";
+ALTER INDEX "EventLog_created_brin" RENAME TO "EventLog_default_created_brin";
+
+-- same columns as before; no primary key, the partition key would have to be
+-- part of it and "start" may be NULL (those rows stay in the default partition)
+CREATE TABLE "EventLog" (LIKE "EventLog_default" INCLUDING DEFAULTS)
+    PARTITION BY RANGE ("start");
+
+ALTER TABLE "EventLog" ALTER COLUMN id SET DEFAULT nextval('"EventLog_part_id_seq"');
+ALTER SEQUENCE "EventLog_part_id_seq" OWNED BY "EventLog".id;
+
+ALTER TABLE "EventLog" ATTACH PARTITION "EventLog_default" DEFAULT;
+
+CREATE INDEX "EventLog_id_idx" ON "EventLog" (id);
+CREATE INDEX "EventLog_ad_start_cover_idx" ON "EventLog" (mediaassetid, "start") INCLUDE ("end", screenid);
+CREATE INDEX "EventLog_start_brin" ON "EventLog" USING BRIN ("start");
+CREATE INDEX "EventLog_created_brin" ON "EventLog" USING BRIN (createdts);
+
+COMMIT;
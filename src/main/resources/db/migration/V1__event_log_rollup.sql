@@ -0,0 +1,43 @@
+-- Daily rollup of "EventLog" per (ad, screen, day, key), see EventLogRollupService.
+-- playday is NULL for events without a start, screenid/"key" are NULL when the event has none.
+CREATE TABLE IF NOT EXISTS "EventLogDaily" (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    mediaassetid  INTEGER NOT NULL,
+    screenid      INTEGER,
+    playday       DATE,
+    "key"         VARCHAR(255),
+    plays         BIGINT NOT NULL DEFAULT 0,
+    seconds       BIGINT NOT NULL DEFAULT 0,
+    epoch_seconds DOUBLE PRECISION NOT NULL DEFAULT 0,
+    first_start   TIMESTAMP WITHOUT TIME ZONE,
+    last_end      TIMESTAMP WITHOUT TIME ZONE
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS "EventLogDaily_bucket_uidx"
+    ON "EventLogDaily" (mediaassetid, (COALESCE(playday, DATE '0001-01-01')), (COALESCE(screenid, -1)), (COALESCE("key", '')));
+
+CREATE INDEX IF NOT EXISTS "EventLogDaily_ad_day_idx" ON "EventLogDaily" (mediaassetid, playday);
+
+CREATE INDEX IF NOT EXISTS "EventLogDaily_day_idx" ON "EventLogDaily" (playday);
+
+-- High-water mark: every "EventLog".id <= last_id is already in the rollup
+CREATE TABLE IF NOT EXISTS "EventLogRollupState" (
+    name         VARCHAR(64) PRIMARY KEY,
+    last_id      BIGINT NOT NULL,
+    refreshed_at TIMESTAMP WITHOUT TIME ZONE
+);
+
+-- Lifetime bounds per ad, kept by the same refresh as "EventLogDaily".
+-- Lets the range report show the lifetime without aggregating the ad's whole history.
+CREATE TABLE IF NOT EXISTS "EventLogAdSummary" (
+    mediaassetid INTEGER PRIMARY KEY,
+    first_start  TIMESTAMP WITHOUT TIME ZONE,
+    last_end     TIMESTAMP WITHOUT TIME ZONE
+);
+
+-- backfill for rollups built before the summary existed (no-op afterwards)
+INSERT INTO "EventLogAdSummary" (mediaassetid, first_start, last_end)
+SELECT mediaassetid, MIN(first_start), MAX(last_end)
+FROM "EventLogDaily"
+GROUP BY mediaassetid
+ON CONFLICT (mediaassetid) DO NOTHING;
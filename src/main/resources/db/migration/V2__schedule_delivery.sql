@@ -0,0 +1,21 @@
+-- Planned versus delivered plays per schedule and day, see DeliveryReconciliationService.
+-- planned_* come from "Schedule".duration (plays per day) and "MediaAsset".duration,
+-- delivered_* from the "EventLog" rows of the schedule's ad and screen on that day.
+-- A day is closed once it is over; under_delivered is only set on closed days.
+CREATE TABLE IF NOT EXISTS "ScheduleDelivery" (
+    schedule_id       INTEGER NOT NULL,
+    playday           DATE NOT NULL,
+    mediaassetid      INTEGER NOT NULL,
+    screenid          INTEGER,
+    planned_plays     DOUBLE PRECISION NOT NULL DEFAULT 0,
+    planned_seconds   DOUBLE PRECISION NOT NULL DEFAULT 0,
+    delivered_plays   BIGINT NOT NULL DEFAULT 0,
+    delivered_seconds BIGINT NOT NULL DEFAULT 0,
+    closed            BOOLEAN NOT NULL DEFAULT FALSE,
+    under_delivered   BOOLEAN NOT NULL DEFAULT FALSE,
+    PRIMARY KEY (schedule_id, playday)
+);
+
+CREATE INDEX IF NOT EXISTS "ScheduleDelivery_day_idx" ON "ScheduleDelivery" (playday);
+
+CREATE INDEX IF NOT EXISTS "ScheduleDelivery_ad_day_idx" ON "ScheduleDelivery" (mediaassetid, playday);
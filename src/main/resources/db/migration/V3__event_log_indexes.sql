@@ -0,0 +1,25 @@
+-- Indexes behind the raw "EventLog" reads, checked at startup by SchemaIndexCheck.
+--
+-- Built CONCURRENTLY so the migration does not block ingestion; Flyway runs a
+-- script made only of such statements outside a transaction. The build waits
+-- for every open transaction, Flyway's own lock included: keep
+-- spring.flyway.postgresql.transactional-lock=false or it never ends. A build
+-- that fails half way leaves an INVALID index behind: drop it and restart.
+--
+-- The rollup fold and the reconciliation read ranges of id, the primary key
+-- serves those.
+
+-- EventExportService.scan (one ad, a range of "start", in "start" order) and
+-- the per-ad tail of EventLogDailyRepository (getRangePerScreen by ad and
+-- "start", the lifetime and windows reads by ad): answered from the index
+-- alone, "end" and screenid are all the aggregations read
+CREATE INDEX CONCURRENTLY IF NOT EXISTS "EventLog_ad_start_cover_idx"
+    ON "EventLog" (mediaassetid, "start") INCLUDE ("end", screenid);
+
+-- EventLogDailyRepository.getStats / getStatsPage (a range of "start" over
+-- every ad) and the tail read of StatsChangeTracker. The tail is usually
+-- small, but it is the whole table while the rollup is off or catching up.
+-- "start" grows with id, so a BRIN index stays tiny and skips all block
+-- ranges outside the window
+CREATE INDEX CONCURRENTLY IF NOT EXISTS "EventLog_start_brin"
+    ON "EventLog" USING BRIN ("start");
@@ -0,0 +1,10 @@
+-- Indexes behind the "Schedule" overlap queries (ScheduleRepository), checked at
+-- startup by SchemaIndexCheck. The table is small, a plain build is fine.
+
+-- findOverlappingForScreen / findAllActiveSchedulesByScreenIdAndDate
+CREATE INDEX IF NOT EXISTS "Schedule_screen_dates_idx"
+    ON "Schedule" (screenid, fromdate, todate);
+
+-- findByMediaAssetIdAndDateRange (DeliveryReconciliationService)
+CREATE INDEX IF NOT EXISTS "Schedule_ad_dates_idx"
+    ON "Schedule" (mediaassetid, fromdate, todate);
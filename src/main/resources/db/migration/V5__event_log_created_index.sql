@@ -0,0 +1,5 @@
+-- Range of createdts over every ad (EventExportService.scanCreated, the nightly
+-- columnar export). createdts grows with id like "start", a BRIN index is enough.
+-- CONCURRENTLY, see V3.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS "EventLog_created_brin"
+    ON "EventLog" USING BRIN (createdts);
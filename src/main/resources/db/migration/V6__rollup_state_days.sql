@@ -0,0 +1,9 @@
+-- Day marks in "EventLogRollupState" ("reconciliation-days", "columnar-export")
+-- get their own column instead of an epoch day in last_id (EventLogMarks)
+ALTER TABLE "EventLogRollupState" ADD COLUMN IF NOT EXISTS last_day DATE;
+ALTER TABLE "EventLogRollupState" ALTER COLUMN last_id DROP NOT NULL;
+
+UPDATE "EventLogRollupState"
+SET last_day = DATE '1970-01-01' + CAST(last_id AS INTEGER),
+    last_id  = NULL
+WHERE name IN ('reconciliation-days', 'columnar-export');
@@ -0,0 +1,13 @@
+-- Last write per play day, kept by the same refresh as "EventLogDaily" (EventLogRollupService).
+-- Last-Modified of closed /api/stats periods (StatsChangeTracker), the same on every instance.
+CREATE TABLE IF NOT EXISTS "EventLogDaySummary" (
+    playday    DATE PRIMARY KEY,
+    changed_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- days rolled up before the summary existed count as changed now (no-op afterwards)
+INSERT INTO "EventLogDaySummary" (playday, changed_at)
+SELECT DISTINCT playday, LOCALTIMESTAMP
+FROM "EventLogDaily"
+WHERE playday IS NOT NULL
+ON CONFLICT (playday) DO NOTHING;
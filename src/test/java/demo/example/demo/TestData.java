@@ -0,0 +1,97 @@
+package demo.example.demo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Inserts test rows into "EventLog" and "Schedule". Tables are emptied
+ * before each test by clean-tables.sql ({@code @Sql("/clean-tables.sql")}).
+ * A bean of the test context; {@code new TestData(jdbc)} for another database.
+ */
+@Component
+public class TestData {
+
+    private final JdbcTemplate jdbc;
+
+    public TestData(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * "yyyy-MM-dd HH:mm:ss[.f...]" as a LocalDateTime, null stays null.
+     */
+    public static LocalDateTime at(String timestamp) {
+        return timestamp != null ? Timestamp.valueOf(timestamp).toLocalDateTime() : null;
+    }
+
+    // ============================================================
+    // EVENTS
+    // ============================================================
+
+    /**
+     * One event with key "k", createdts left to its default.
+     */
+    public void event(int adId, Integer screenId, LocalDateTime start, LocalDateTime end) {
+        jdbc.update("INSERT INTO \"EventLog\" (\"start\", \"end\", \"key\", screenid, mediaassetid) VALUES (?, ?, 'k', ?, ?)",
+                timestamp(start), timestamp(end), screenId, adId);
+    }
+
+    /**
+     * One event with every column given, NULLs included.
+     */
+    public void event(Integer adId, Integer screenId, LocalDateTime start, LocalDateTime end, String key,
+                      LocalDateTime created) {
+        jdbc.update("INSERT INTO \"EventLog\" (\"start\", \"end\", \"key\", screenid, mediaassetid, createdts)"
+                        + " VALUES (?, ?, ?, ?, ?, ?)",
+                timestamp(start), timestamp(end), key, screenId, adId, timestamp(created));
+    }
+
+    /**
+     * One play of {@code seconds} from {@code start}, key "k".
+     */
+    public void play(int adId, Integer screenId, LocalDateTime start, long seconds) {
+        play(adId, screenId, start, seconds, "k");
+    }
+
+    public void play(int adId, Integer screenId, LocalDateTime start, long seconds, String key) {
+        jdbc.update("INSERT INTO \"EventLog\" (\"start\", \"end\", \"key\", screenid, mediaassetid) VALUES (?, ?, ?, ?, ?)",
+                timestamp(start), timestamp(start.plusSeconds(seconds)), key, screenId, adId);
+    }
+
+    // ============================================================
+    // SCHEDULES
+    // ============================================================
+
+    /**
+     * A schedule over whole days.
+     */
+    public void schedule(int adId, int screenId, LocalDate from, LocalDate to, double playsPerDay) {
+        schedule(adId, screenId, from, to, null, null, playsPerDay);
+    }
+
+    public void schedule(int adId, int screenId, LocalDate from, LocalDate to,
+                         LocalTime fromTime, LocalTime toTime, double playsPerDay) {
+        jdbc.update("INSERT INTO \"Schedule\" (fromdate, todate, fromtime, totime, duration, screenid, mediaassetid) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                from, to, fromTime, toTime, playsPerDay, screenId, adId);
+    }
+
+    /**
+     * A schedule with a fixed id.
+     */
+    public void schedule(int id, int adId, int screenId, LocalDate from, LocalDate to,
+                         LocalTime fromTime, LocalTime toTime, double playsPerDay) {
+        jdbc.update("INSERT INTO \"Schedule\" (id, fromdate, todate, fromtime, totime, duration, screenid, mediaassetid) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                id, from, to, fromTime, toTime, playsPerDay, screenId, adId);
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+}
@@ -0,0 +1,118 @@
+package demo.example.demo.benchmark;
+
+import demo.example.demo.dto.AdPerScreenStats;
+import demo.example.demo.service.AdReportPdfService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports per second of {@link AdReportPdfService#writePdf}, rendering only
+ * (stats are prepared up front, output goes nowhere). The *ReloadingResources
+ * variants add the work every report used to do before the logo and fonts
+ * were shared: read and decode the logo, build the fonts and colors.
+ *
+ * Run with:
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *       "-Dexec.args=-cp %classpath demo.example.demo.benchmark.AdReportPdfBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdReportPdfBenchmark {
+
+    @Param({"20", "500"})
+    public int screens;
+
+    private AdReportPdfService pdfService;
+    private AdReportPdfService.ReportData report;
+
+    @Setup
+    public void setUp() {
+        // writePdf does not touch the stats service or the repository
+        pdfService = new AdReportPdfService(null, null, new SimpleMeterRegistry());
+
+        List<AdPerScreenStats> perScreen = new ArrayList<>(screens);
+        long plays = 0, seconds = 0;
+        for (int i = 1; i <= screens; i++) {
+            long p = 100 + i * 7L;
+            long s = p * 15;
+            perScreen.add(new AdPerScreenStats(i, "Screen " + i, p, s));
+            plays += p;
+            seconds += s;
+        }
+
+        report = new AdReportPdfService.ReportData(
+                1, "Benchmark ad", "ACME",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 6, 30),
+                plays, seconds, perScreen,
+                null, null);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThread() {
+        pdfService.writePdf(report, OutputStream.nullOutputStream());
+    }
+
+    // bulk export renders on a pool of 4 workers
+    @Benchmark
+    @Threads(4)
+    public void fourThreads() {
+        pdfService.writePdf(report, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThreadReloadingResources(Blackhole blackhole) throws Exception {
+        reloadResources(blackhole);
+        pdfService.writePdf(report, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fourThreadsReloadingResources(Blackhole blackhole) throws Exception {
+        reloadResources(blackhole);
+        pdfService.writePdf(report, OutputStream.nullOutputStream());
+    }
+
+    // what buildPdf did for every report while nothing was shared
+    private static void reloadResources(Blackhole blackhole) throws IOException {
+        try (InputStream in = AdReportPdfService.class.getResourceAsStream("/reports/company-logo.png")) {
+            Image logo = Image.getInstance(in.readAllBytes());
+            logo.scaleToFit(80, 40);
+            blackhole.consume(logo);
+        }
+        blackhole.consume(new Font(Font.HELVETICA, 16, Font.BOLD));
+        blackhole.consume(new Font(Font.HELVETICA, 12, Font.NORMAL));
+        blackhole.consume(new Font(Font.HELVETICA, 11, Font.BOLD));
+        blackhole.consume(new Font(Font.HELVETICA, 11, Font.NORMAL));
+        blackhole.consume(new Font(Font.HELVETICA, 10, Font.BOLD, new Color(255, 255, 255)));
+        blackhole.consume(new Font(Font.HELVETICA, 9));
+        blackhole.consume(new Color(23, 42, 15));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(AdReportPdfBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,190 @@
+package demo.example.demo.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range queries on a plain versus a monthly partitioned copy of "EventLog",
+ * with the shapes of the stats queries (one ad over a week per screen, all
+ * ads of one day). Needs a local PostgreSQL; the two tables are generated on
+ * the first run (bench.rows events over 24 months, start growing with id like
+ * the real table) and reused afterwards.
+ *
+ * Run with:
+ *   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *       "-Dexec.args=-Dbench.url=jdbc:postgresql://localhost:5432/bench -Dbench.user=postgres \
+ *        -Dbench.password=postgres -Dbench.rows=100000000 \
+ *        -cp %classpath demo.example.demo.benchmark.EventLogPartitionBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsPrepend = {"-Xmx1g"})
+@State(Scope.Benchmark)
+public class EventLogPartitionBenchmark {
+
+    static final String PLAIN = "bench_eventlog_plain";
+    static final String PARTITIONED = "bench_eventlog_part";
+
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2024, 1);
+    private static final int MONTHS = 24;
+    private static final int ADS = 500;
+    private static final int SCREENS = 300;
+    private static final long LOAD_BATCH = 5_000_000L;
+
+    @Param({PLAIN, PARTITIONED})
+    public String table;
+
+    private Connection connection;
+    private PreparedStatement adWeek;
+    private PreparedStatement allAdsDay;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/bench"),
+                System.getProperty("bench.user", "postgres"),
+                System.getProperty("bench.password", "postgres"));
+
+        long rows = Long.getLong("bench.rows", 100_000_000L);
+        ensureData(connection, rows);
+
+        // same predicates as EventLogDailyRepository's tail: bare "start" against bound timestamps
+        adWeek = connection.prepareStatement("""
+                SELECT screenid, COUNT(*),
+                       SUM(GREATEST(FLOOR(EXTRACT(EPOCH FROM (COALESCE("end","start") - "start"))), 0))
+                FROM %s
+                WHERE mediaassetid = ? AND "start" >= ? AND "start" < ?
+                GROUP BY screenid
+                """.formatted(table));
+        allAdsDay = connection.prepareStatement("""
+                SELECT mediaassetid, screenid, COUNT(*),
+                       SUM(EXTRACT(EPOCH FROM (COALESCE("end","start") - "start")))
+                FROM %s
+                WHERE "start" >= ? AND "start" < ?
+                GROUP BY mediaassetid, screenid
+                """.formatted(table));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int oneAdOneWeek() throws SQLException {
+        LocalDate from = randomDay();
+        adWeek.setInt(1, 1 + random.nextInt(ADS));
+        adWeek.setTimestamp(2, Timestamp.valueOf(from.atStartOfDay()));
+        adWeek.setTimestamp(3, Timestamp.valueOf(from.plusDays(7).atStartOfDay()));
+        return drain(adWeek);
+    }
+
+    @Benchmark
+    public int allAdsOneDay() throws SQLException {
+        LocalDate day = randomDay();
+        allAdsDay.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+        allAdsDay.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        return drain(allAdsDay);
+    }
+
+    private LocalDate randomDay() {
+        return FIRST_MONTH.atDay(1).plusDays(random.nextInt(MONTHS * 30 - 7));
+    }
+
+    private static int drain(PreparedStatement statement) throws SQLException {
+        int n = 0;
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) n++;
+        }
+        return n;
+    }
+
+    // ------------------------------------------------------------
+    // DATA: both tables get the same rows, generated server side
+    // ------------------------------------------------------------
+
+    static void ensureData(Connection c, long rows) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            if (hasRows(st, PLAIN, rows) && hasRows(st, PARTITIONED, rows)) return;
+
+            st.execute("DROP TABLE IF EXISTS " + PLAIN + ", " + PARTITIONED);
+            String columns = """
+                    (id BIGINT NOT NULL, "start" TIMESTAMP, "end" TIMESTAMP, "key" VARCHAR(255),
+                     screenid INTEGER, mediaassetid INTEGER, createdts TIMESTAMP)""";
+            st.execute("CREATE TABLE " + PLAIN + " " + columns);
+            st.execute("CREATE TABLE " + PARTITIONED + " " + columns + " PARTITION BY RANGE (\"start\")");
+            for (int m = 0; m < MONTHS; m++) {
+                YearMonth month = FIRST_MONTH.plusMonths(m);
+                st.execute("CREATE TABLE " + PARTITIONED + "_p" + month.toString().replace("-", "")
+                        + " PARTITION OF " + PARTITIONED
+                        + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            }
+            st.execute("CREATE TABLE " + PARTITIONED + "_default PARTITION OF " + PARTITIONED + " DEFAULT");
+        }
+
+        long spanSeconds = (FIRST_MONTH.plusMonths(MONTHS).atDay(1).toEpochDay() - FIRST_MONTH.atDay(1).toEpochDay()) * 86_400L;
+        double secondsPerRow = (double) spanSeconds / rows;
+
+        c.setAutoCommit(false);
+        for (String t : new String[]{PLAIN, PARTITIONED}) {
+            try (PreparedStatement insert = c.prepareStatement("""
+                    INSERT INTO %s (id, "start", "end", "key", screenid, mediaassetid, createdts)
+                    SELECT g, s, s + make_interval(secs => 5 + g %% 26), 'bench',
+                           1 + (g * 31) %% %d, 1 + (g * 7919) %% %d, s
+                    FROM generate_series(?::bigint, ?::bigint) g,
+                         LATERAL (SELECT TIMESTAMP '%s' + make_interval(secs => g * ?::double precision)) AS x(s)
+                    """.formatted(t, SCREENS, ADS, FIRST_MONTH.atDay(1)))) {
+                for (long from = 1; from <= rows; from += LOAD_BATCH) {
+                    insert.setLong(1, from);
+                    insert.setLong(2, Math.min(rows, from + LOAD_BATCH - 1));
+                    insert.setDouble(3, secondsPerRow);
+                    insert.executeUpdate();
+                    c.commit();
+                }
+            }
+        }
+        c.setAutoCommit(true);
+
+        try (Statement st = c.createStatement()) {
+            for (String t : new String[]{PLAIN, PARTITIONED}) {
+                st.execute("CREATE INDEX ON " + t + " (id)");
+                st.execute("CREATE INDEX ON " + t + " (mediaassetid, \"start\")");
+                st.execute("ANALYZE " + t);
+            }
+        }
+    }
+
+    private static boolean hasRows(Statement st, String table, long rows) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT to_regclass('" + table + "') IS NOT NULL")) {
+            rs.next();
+            if (!rs.getBoolean(1)) return false;
+        }
+        try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1) == rows;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(EventLogPartitionBenchmark.class.getSimpleName())
+                .jvmArgsAppend(
+                        "-Dbench.url=" + System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/bench"),
+                        "-Dbench.user=" + System.getProperty("bench.user", "postgres"),
+                        "-Dbench.password=" + System.getProperty("bench.password", "postgres"),
+                        "-Dbench.rows=" + System.getProperty("bench.rows", "100000000"))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,155 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.AdGlobalStats;
+import demo.example.demo.dto.AdListDto;
+import demo.example.demo.service.ScheduleIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static demo.example.demo.TestData.at;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class AdStatsControllerListTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true), (2, '', true)");
+
+        for (int ad = 1; ad <= 6; ad++) {
+            jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (?, ?, ?, 10)",
+                    ad, "Ad " + ad, "Company " + ad);
+        }
+
+        LocalDate today = LocalDate.now();
+
+        // ad 1: active today, mixed durations (fractional, open end, negative, no screen, no start)
+        data.event(1, 1, at("2025-01-01 10:00:00"), at("2025-01-01 10:00:10.900"));
+        data.event(1, 1, at("2025-01-02 10:00:00"), null);
+        data.event(1, 2, at("2025-01-03 10:00:00"), at("2025-01-03 09:59:58.500"));
+        data.event(1, null, at("2025-01-04 23:59:50"), at("2025-01-05 00:00:20"));
+        data.event(1, 2, null, null);
+        data.schedule(1, 1, today.minusDays(1), today.plusDays(1), 5);
+
+        // ad 2: scheduled in the future
+        data.event(2, 2, at("2025-02-01 08:00:00"), at("2025-02-01 08:00:30"));
+        data.schedule(2, 2, today.plusDays(3), today.plusDays(10), 5);
+
+        // ad 3: expired
+        data.event(3, 1, at("2024-12-31 23:00:00"), at("2024-12-31 23:00:15"));
+        data.schedule(3, 1, today.minusDays(30), today.minusDays(10), 5);
+
+        // ad 4: no events, no schedules; ads 5 and 6 only have events
+        data.event(5, 1, at("2025-03-01 12:00:00"), at("2025-03-01 12:01:00"));
+        data.event(6, 2, at("2025-03-02 12:00:00"), at("2025-03-02 12:00:05"));
+
+        scheduleIndex.refresh();
+    }
+
+    @Test
+    void listUsesFixedNumberOfStatementsAndMatchesPerAdStats() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        MvcResult result = mockMvc.perform(get("/ads-reports"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // media assets + grouped event totals, independent of the number of ads (status comes from the schedule index)
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+
+        @SuppressWarnings("unchecked")
+        Map<Integer, AdGlobalStats> statsMap =
+                (Map<Integer, AdGlobalStats>) result.getModelAndView().getModel().get("statsMap");
+
+        Map<Integer, AdGlobalStats> expectedMap = totalsFromRawRows();
+
+        assertThat(statsMap).hasSize(6);
+        for (int ad = 1; ad <= 6; ad++) {
+            AdGlobalStats expected = expectedMap.get(ad);
+            AdGlobalStats actual = statsMap.get(ad);
+
+            assertThat(actual.getTotalPlays()).as("plays of ad %d", ad).isEqualTo(expected.getTotalPlays());
+            assertThat(actual.getTotalSeconds()).as("seconds of ad %d", ad).isEqualTo(expected.getTotalSeconds());
+            assertThat(actual.getLifetimeFrom()).as("from of ad %d", ad).isEqualTo(expected.getLifetimeFrom());
+            assertThat(actual.getLifetimeTo()).as("to of ad %d", ad).isEqualTo(expected.getLifetimeTo());
+            assertThat(actual.getCompanyname()).isEqualTo("Company " + ad);
+        }
+
+        assertThat(statuses(result, "activeAds")).containsExactly(1);
+        assertThat(statuses(result, "scheduledAds")).containsExactly(2);
+        assertThat(statuses(result, "expiredAds")).containsExactly(3);
+        assertThat(statuses(result, "inactiveAds")).containsExactlyInAnyOrder(4, 5, 6);
+    }
+
+    // reference: every "EventLog" row summed here, whole seconds per event (negative as 0),
+    // lifetime from the first start to the last end
+    private Map<Integer, AdGlobalStats> totalsFromRawRows() {
+        Map<Integer, AdGlobalStats> totals = new HashMap<>();
+        for (int ad = 1; ad <= 6; ad++) {
+            totals.put(ad, new AdGlobalStats(ad, "Ad " + ad, 0L, 0L, List.of(), null, null));
+        }
+        jdbc.query("SELECT mediaassetid, \"start\", \"end\" FROM \"EventLog\"", rs -> {
+            AdGlobalStats t = totals.get(rs.getInt(1));
+            LocalDateTime start = rs.getObject(2, LocalDateTime.class);
+            LocalDateTime end = rs.getObject(3, LocalDateTime.class);
+
+            t.setTotalPlays(t.getTotalPlays() + 1);
+            if (start == null) return;
+            LocalDateTime last = end != null ? end : start;
+            t.setTotalSeconds(t.getTotalSeconds() + Math.max(Duration.between(start, last).getSeconds(), 0L));
+            if (t.getLifetimeFrom() == null || start.toLocalDate().isBefore(t.getLifetimeFrom())) {
+                t.setLifetimeFrom(start.toLocalDate());
+            }
+            if (t.getLifetimeTo() == null || last.toLocalDate().isAfter(t.getLifetimeTo())) {
+                t.setLifetimeTo(last.toLocalDate());
+            }
+        });
+        return totals;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> statuses(MvcResult result, String attribute) {
+        List<AdListDto> ads = (List<AdListDto>) result.getModelAndView().getModel().get(attribute);
+        return ads.stream().map(AdListDto::getId).toList();
+    }
+}
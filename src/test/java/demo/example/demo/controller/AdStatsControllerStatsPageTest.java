@@ -0,0 +1,147 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.AdStatsPage;
+import demo.example.demo.service.AdStatsPageService;
+import demo.example.demo.repositories.MediaAssetRepository;
+import demo.example.demo.service.AdStatsService;
+import demo.example.demo.service.QueryLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "stats.page.time-budget=1s")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class AdStatsControllerStatsPageTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @Autowired
+    private AdStatsPageService adStatsPageService;
+
+    @Autowired
+    private MediaAssetRepository mediaAssetRepository;
+
+    @Autowired
+    private QueryLimiter queryLimiter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoSpyBean
+    private AdStatsService adStatsService;
+
+    @BeforeEach
+    void seed() {
+        reset(adStatsService);
+
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (1, 'Promo', 'ACME', 10)");
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true)");
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (2, 'Entrance', true)");
+
+        data.play(1, 1, LocalDateTime.of(2025, 4, 16, 9, 0), 10);   // refDay
+        data.play(1, 2, LocalDateTime.of(2025, 4, 14, 9, 0), 20);   // same week
+        data.play(1, 2, LocalDateTime.of(2025, 4, 2, 9, 0), 30);    // same month
+        data.play(1, 1, LocalDateTime.of(2025, 1, 2, 9, 0), 40);    // lifetime only
+    }
+
+    @Test
+    void allReadsMakeTheBudget() {
+        AdStatsPage page = adStatsPageService.load(1, LocalDate.of(2025, 4, 16));
+
+        assertThat(page.complete()).isTrue();
+        assertThat(page.ad().getName()).isEqualTo("Promo");
+        assertThat(page.global().getTotalPlays()).isEqualTo(4);
+        assertThat(page.global().getTotalSeconds()).isEqualTo(100);
+        assertThat(page.dayStats()).singleElement().satisfies(r -> assertThat(r.getTotalSeconds()).isEqualTo(10));
+        assertThat(page.weekStats()).hasSize(2);
+        assertThat(page.monthStats()).extracting(r -> r.getTotalSeconds()).containsExactly(50L, 10L);
+
+        assertThat(adStatsPageService.load(404, LocalDate.of(2025, 4, 16))).isNull();
+    }
+
+    @Test
+    void slowStatsAreLeftOutOfThePage() throws Exception {
+        doAnswer(inv -> {
+            Thread.sleep(3_000);
+            return inv.callRealMethod();
+        }).when(adStatsService).computeStatsWindows(any(), any());
+
+        // answered at the budget, not after the slow read
+        long started = System.nanoTime();
+        AdStatsPage page = adStatsPageService.load(1, LocalDate.of(2025, 4, 16));
+        assertThat(System.nanoTime() - started).isLessThan(2_500_000_000L);
+        assertThat(page.missing()).containsExactly("stats");
+        assertThat(page.ad().getName()).isEqualTo("Promo");
+        assertThat(page.global()).isNull();
+        assertThat(page.dayStats()).isNull();
+
+        mockMvc.perform(get("/ads-reports/1/stats").param("day", "2025-04-16"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("missing", List.of("stats")))
+                .andExpect(content().string(containsString("Not available within the time budget")))
+                .andExpect(content().string(containsString("Promo")));
+    }
+
+    @Test
+    void readsRefusedByAFullPoolAreLeftOutWithoutWaiting() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return inv.callRealMethod();
+        }).when(adStatsService).computeStatsWindows(any(), any());
+
+        // one worker, one queue slot: the first page's windows read keeps the worker busy
+        AdStatsPageService small = new AdStatsPageService(adStatsService, mediaAssetRepository, queryLimiter,
+                transactionManager, 1, 1, Duration.ofSeconds(1));
+        assertThat(small.load(1, LocalDate.of(2025, 4, 16)).missing()).containsExactly("stats");
+
+        // the ad read takes the queue slot and the windows read waits for it, neither runs here
+        long started = System.nanoTime();
+        AdStatsPage page = small.load(1, LocalDate.of(2025, 4, 16));
+        assertThat(System.nanoTime() - started).isLessThan(2_500_000_000L);
+        assertThat(page.missing()).containsExactly("ad", "stats");
+
+        release.countDown();
+    }
+
+    @Test
+    void unknownAdIsNotFound() throws Exception {
+        mockMvc.perform(get("/ads-reports/404/stats"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,176 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.jayway.jsonpath.JsonPath;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class AdStatsReportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (1, 'Promo', 'ACME', 10)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (2, 'Teaser', 'ACME', 5)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (3, 'Other', 'Globex', 5)");
+
+        // enough screens for the per-screen table to be flushed a few times
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 9, 0);
+        for (int screen = 1; screen <= 450; screen++) {
+            jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (?, ?, true)", screen, "Screen #" + screen);
+            data.play(1, screen, start, screen % 30);
+        }
+    }
+
+    @Test
+    void lifetimeExportIsStreamedAsPdf() throws Exception {
+        MvcResult started = mockMvc.perform(get("/ads-reports/1/stats/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"ad-1-lifetime-report.pdf\""))
+                .andReturn();
+
+        byte[] pdf = result.getResponse().getContentAsByteArray();
+        assertThat(new String(pdf, 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+        assertThat(new String(pdf, StandardCharsets.ISO_8859_1)).contains("%%EOF");
+
+        // only report pages, the per-screen table ends on the last one
+        PdfReader reader = new PdfReader(pdf);
+        int last = reader.getNumberOfPages();
+        for (int page = 1; page <= last; page++) {
+            assertThat(reader.getPageSize(page).getWidth()).isEqualTo(PageSize.A4.getWidth());
+        }
+        assertThat(new PdfTextExtractor(reader).getTextFromPage(last)).contains("Screen #450");
+        reader.close();
+    }
+
+    @Test
+    void rangeExportIsStreamedAsPdf() throws Exception {
+        MvcResult started = mockMvc.perform(get("/ads-reports/1/stats/export/range")
+                        .param("from", "2025-04-01")
+                        .param("to", "2025-04-30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] pdf = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"ad-1-report-2025-04-01_2025-04-30.pdf\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        PdfReader reader = new PdfReader(pdf);
+        assertThat(new PdfTextExtractor(reader).getTextFromPage(1))
+                .contains("Promo", "01.04.2025 - 30.04.2025");
+        reader.close();
+
+        mockMvc.perform(get("/ads-reports/1/stats/export/range")
+                        .param("from", "2025-04-30")
+                        .param("to", "2025-04-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bulkExportZipsOneReportPerAdOfTheCompany() throws Exception {
+        MvcResult created = mockMvc.perform(post("/ads-reports/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"companyName\": \"acme\", \"from\": \"2025-04-01\", \"to\": \"2025-04-30\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.total").value(2))
+                .andReturn();
+
+        String jobId = JsonPath.read(created.getResponse().getContentAsString(), "$.jobId");
+
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() ->
+                mockMvc.perform(get("/ads-reports/bulk/" + jobId))
+                        .andExpect(jsonPath("$.state").value("DONE"))
+                        .andExpect(jsonPath("$.completed").value(2))
+                        .andExpect(jsonPath("$.failed").value(0)));
+
+        Map<String, byte[]> entries = download(jobId);
+
+        assertThat(entries).containsOnlyKeys(
+                "ad-1-report-2025-04-01_2025-04-30.pdf",
+                "ad-2-report-2025-04-01_2025-04-30.pdf");
+        assertThat(entries.values()).allSatisfy(pdf ->
+                assertThat(new String(pdf, 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-"));
+
+        // the reports stay on disk until the job expires, a download can be retried
+        assertThat(download(jobId)).containsOnlyKeys(entries.keySet());
+    }
+
+    @Test
+    void bulkExportWithoutMatchingAdsIsRejected() throws Exception {
+        mockMvc.perform(post("/ads-reports/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"adIds\": [404]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Map<String, byte[]> download(String jobId) throws Exception {
+        MvcResult started = mockMvc.perform(get("/ads-reports/bulk/" + jobId + "/download"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] zipBytes = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            for (ZipEntry e; (e = zip.getNextEntry()) != null; ) {
+                entries.put(e.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,181 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.CapacityGrid;
+import demo.example.demo.dto.ScheduleEntry;
+import demo.example.demo.dto.ScreenCapacity;
+import demo.example.demo.service.CapacityService;
+import demo.example.demo.service.ScheduleIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class CapacityControllerTest {
+
+    private static final LocalDate D = LocalDate.of(2025, 6, 10);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private CapacityService capacityService;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true), (2, 'Hall', true), (3, 'Off', false)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (1, 'Ten', 10), (2, 'Thirty', 30)");
+    }
+
+    @Test
+    void gridShowsBookedSecondsAndBusiestHour() throws Exception {
+        // 300 * 10 s in 08:00-09:00 on D .. D+2
+        data.schedule(1, 1, D, D.plusDays(2), LocalTime.of(8, 0), LocalTime.of(9, 0), 300);
+        // 48 * 30 s over the whole day, open dates
+        data.schedule(2, 2, null, null, null, null, 48);
+        scheduleIndex.refresh();
+
+        mockMvc.perform(get("/api/capacity")
+                        .param("from", D.minusDays(1).toString())
+                        .param("to", D.plusDays(3).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableSecondsPerDay").value(86400))
+                .andExpect(jsonPath("$.screens", hasSize(3)))
+                .andExpect(jsonPath("$.screens[0].bookedSeconds[0]").value(0))
+                .andExpect(jsonPath("$.screens[0].bookedSeconds[1]").value(3000))
+                .andExpect(jsonPath("$.screens[0].bookedSeconds[3]").value(3000))
+                .andExpect(jsonPath("$.screens[0].bookedSeconds[4]").value(0))
+                .andExpect(jsonPath("$.screens[0].peakPercent[1]").value(83))
+                .andExpect(jsonPath("$.screens[1].bookedSeconds[0]").value(1440))
+                .andExpect(jsonPath("$.screens[1].peakPercent[0]").value(2))
+                .andExpect(jsonPath("$.screens[2].active").value(false));
+
+        mockMvc.perform(get("/capacity").param("from", D.toString()).param("to", D.plusDays(6).toString()))
+                .andExpect(status().isOk())
+                .andExpect(view().name("capacity/heatmap"))
+                .andExpect(model().attribute("days", hasSize(7)));
+    }
+
+    @Test
+    void checkReportsTheOverbookedHours() throws Exception {
+        data.schedule(1, 1, D, D.plusDays(2), LocalTime.of(8, 0), LocalTime.of(9, 0), 300);
+        scheduleIndex.refresh();
+
+        // 3000 s booked + 100 * 10 s = 4000 s in one hour
+        mockMvc.perform(post("/api/capacity/check")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(booking("[1, 2]", D.minusDays(1), D.plusDays(1), "08:00", "09:00", 100, 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fits").value(false))
+                .andExpect(jsonPath("$.requestedSecondsPerDay").value(1000))
+                .andExpect(jsonPath("$.screensChecked").value(2))
+                .andExpect(jsonPath("$.conflictCount").value(2))
+                .andExpect(jsonPath("$.conflicts[0].screenId").value(1))
+                .andExpect(jsonPath("$.conflicts[0].day").value(D.toString()))
+                .andExpect(jsonPath("$.conflicts[0].hour").value(8))
+                .andExpect(jsonPath("$.conflicts[0].bookedSeconds").value(3000))
+                .andExpect(jsonPath("$.conflicts[0].requestedSeconds").value(1000))
+                .andExpect(jsonPath("$.conflicts[0].availableSeconds").value(3600));
+
+        // spread over two hours it fits next to the existing booking
+        mockMvc.perform(post("/api/capacity/check")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(booking("[1, 2]", D, D.plusDays(2), "08:00", "10:00", 100, 1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fits").value(true))
+                .andExpect(jsonPath("$.conflicts", hasSize(0)));
+
+        // an inactive screen has no airtime
+        mockMvc.perform(post("/api/capacity/check")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(booking("[3]", D, D, null, null, 1, 2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fits").value(false))
+                .andExpect(jsonPath("$.conflictCount").value(1));
+
+        mockMvc.perform(post("/api/capacity/check")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(booking("[1]", D.plusDays(1), D, null, null, 1, 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void loadArraysMatchAPerDayScan() {
+        Random random = new Random(7);
+        List<ScheduleEntry> all = new ArrayList<>();
+
+        for (int id = 1; id <= 300; id++) {
+            int screen = 1 + random.nextInt(2);
+            LocalDate from = random.nextInt(8) == 0 ? null : D.plusDays(random.nextInt(60) - 30);
+            LocalDate to = random.nextInt(8) == 0 ? null : (from != null ? from : D).plusDays(random.nextInt(20));
+            LocalTime fromTime = random.nextBoolean() ? null : LocalTime.of(random.nextInt(20), random.nextInt(4) * 15);
+            LocalTime toTime = fromTime == null ? null : fromTime.plusMinutes(30 + random.nextInt(200));
+            if (toTime != null && toTime.isBefore(fromTime)) toTime = LocalTime.of(23, 59, 59);
+            double plays = 1 + random.nextInt(50);
+            int ad = 1 + random.nextInt(2);
+
+            data.schedule(ad, screen, from, to, fromTime, toTime, plays);
+            all.add(new ScheduleEntry(id, screen, ad, from, to, fromTime, toTime, plays));
+        }
+        scheduleIndex.refresh();
+
+        LocalDate from = D.minusDays(20);
+        LocalDate to = D.plusDays(40);
+        CapacityGrid grid = capacityService.grid(from, to, List.of(1, 2));
+
+        for (ScreenCapacity screen : grid.screens()) {
+            int d = 0;
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1), d++) {
+                double expected = 0;
+                for (ScheduleEntry e : all) {
+                    if (e.screenId().equals(screen.screenId()) && e.coversDay(day)) {
+                        expected += e.duration() * (e.mediaAssetId() == 1 ? 10 : 30);
+                    }
+                }
+                assertThat((double) screen.bookedSeconds()[d])
+                        .as("screen %d on %s", screen.screenId(), day)
+                        .isCloseTo(expected, within(1.0));
+            }
+        }
+    }
+
+    private static String booking(String screenIds, LocalDate from, LocalDate to,
+                                  String fromTime, String toTime, double plays, int adId) {
+        return "{\"screenIds\": " + screenIds
+                + ", \"from\": \"" + from + "\", \"to\": \"" + to + "\""
+                + (fromTime != null ? ", \"fromtime\": \"" + fromTime + "\", \"totime\": \"" + toTime + "\"" : "")
+                + ", \"playsPerDay\": " + plays + ", \"mediaAssetId\": " + adId + "}";
+    }
+}
@@ -0,0 +1,113 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static demo.example.demo.TestData.at;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "export.events.fetch-size=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class EventExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (1, 'Promo', 10), (2, 'Teaser', 5)");
+
+        event(1, 1, "2025-03-02 09:00:00", 10, "k,1");
+        event(1, null, "2025-03-01 08:00:00", 5, "k1");
+        event(1, 1, "2025-03-03 23:59:59", 10, "k1");
+        event(1, 1, "2025-03-04 00:00:00", 10, "k1"); // day after the range
+        event(2, 1, "2025-03-02 10:00:00", 7, "k2");  // other ad
+    }
+
+    @Test
+    void exportsCsvOrderedByStart() throws Exception {
+        MvcResult result = body(get("/api/ads/1/events")
+                .param("from", "2025-03-01").param("to", "2025-03-03"));
+
+        assertThat(result.getResponse().getContentType()).startsWith("text/csv");
+        assertThat(result.getResponse().getHeader("Content-Disposition"))
+                .contains("ad-1-events-2025-03-01_2025-03-03.csv");
+
+        List<String> lines = lines(result);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).isEqualTo("id,start,end,key,screen_id,media_asset_id,created_ts");
+        assertThat(lines.get(1)).contains(",2025-03-01T08:00:00,2025-03-01T08:00:05,k1,,1,");
+        assertThat(lines.get(2)).contains(",2025-03-02T09:00:00,2025-03-02T09:00:10,\"k,1\",1,1,");
+        assertThat(lines.get(3)).contains(",2025-03-03T23:59:59,");
+    }
+
+    @Test
+    void exportsNdjson() throws Exception {
+        MvcResult result = body(get("/api/ads/1/events")
+                .param("from", "2025-03-02").param("to", "2025-03-02").param("format", "ndjson"));
+
+        assertThat(result.getResponse().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON_VALUE);
+        List<String> lines = lines(result);
+        assertThat(lines).hasSize(1);
+        assertThat(lines.get(0))
+                .contains("\"start\":\"2025-03-02T09:00:00\"")
+                .contains("\"key\":\"k,1\"")
+                .contains("\"screenId\":1")
+                .contains("\"mediaAssetId\":1");
+    }
+
+    @Test
+    void rejectsBadRequests() throws Exception {
+        mockMvc.perform(get("/api/ads/1/events").param("from", "2025-03-03").param("to", "2025-03-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/ads/1/events").param("from", "2025-03-01").param("to", "2025-03-03")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/ads/99/events").param("from", "2025-03-01").param("to", "2025-03-03"))
+                .andExpect(status().isNotFound());
+    }
+
+    private MvcResult body(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    private static List<String> lines(MvcResult result) throws Exception {
+        String body = result.getResponse().getContentAsString();
+        return body.isEmpty() ? List.of() : List.of(body.split("\n"));
+    }
+
+    // created when it started
+    private void event(int adId, Integer screenId, String start, int seconds, String key) {
+        LocalDateTime s = at(start);
+        data.event(adId, screenId, s, s.plusSeconds(seconds), key, s);
+    }
+}
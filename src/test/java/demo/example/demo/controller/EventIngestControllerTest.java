@@ -0,0 +1,85 @@
+package demo.example.demo.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class EventIngestControllerTest {
+
+    private static final String SCREEN_UUID = "6f1c2a9e-3b8d-4a51-9a7e-2d0c5b1e7f10";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Value("${ingest.max-events-per-request}")
+    private int maxEventsPerRequest;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active, uuid) VALUES (1, 'Lobby', true, ?)",
+                java.util.UUID.fromString(SCREEN_UUID));
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (7, 'Promo', 10)");
+    }
+
+    @Test
+    void acceptsValidEventsAndWritesThemInBatches() throws Exception {
+        String body = """
+                [
+                  {"screenUuid": "%1$s", "mediaAssetId": 7, "start": "2025-05-01T10:00:00", "end": "2025-05-01T10:00:15", "key": "k1"},
+                  {"screenUuid": "%1$s", "mediaAssetId": 7, "start": "2025-05-01T10:01:00", "key": "k1"},
+                  {"screenUuid": "00000000-0000-0000-0000-000000000000", "mediaAssetId": 7, "start": "2025-05-01T10:02:00"},
+                  {"screenUuid": "%1$s", "mediaAssetId": 999, "start": "2025-05-01T10:03:00"},
+                  {"screenUuid": "%1$s", "mediaAssetId": 7}
+                ]
+                """.formatted(SCREEN_UUID);
+
+        mockMvc.perform(post("/api/events").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(3));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM \"EventLog\"", Long.class)).isEqualTo(2));
+
+        assertThat(jdbc.queryForObject(
+                "SELECT COUNT(*) FROM \"EventLog\" WHERE screenid = 1 AND mediaassetid = 7 AND createdts IS NOT NULL",
+                Long.class)).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsRequestsLargerThanTheLimit() throws Exception {
+        String body = "{}" + ",{}".repeat(maxEventsPerRequest);
+
+        mockMvc.perform(post("/api/events").contentType(MediaType.APPLICATION_JSON).content("[" + body + "]"))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void rejectsEmptyRequests() throws Exception {
+        mockMvc.perform(post("/api/events").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+}
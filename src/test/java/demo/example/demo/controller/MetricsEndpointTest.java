@@ -0,0 +1,94 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class MetricsEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true)");
+        for (int ad = 1; ad <= 5; ad++) {
+            jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (?, ?, 'ACME', 10)",
+                    ad, "Ad " + ad);
+            LocalDateTime start = LocalDateTime.of(2025, 4, 1, 9, ad);
+            data.play(ad, 1, start, 10);
+        }
+    }
+
+    @Test
+    void hotPathsAreExportedForPrometheus() throws Exception {
+        mockMvc.perform(get("/ads-reports")).andExpect(status().isOk());
+        mockMvc.perform(get("/ads-reports/1/stats").param("day", "2025-04-01")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("ad_stats_seconds_bucket{", "method=\"computeLifetimeTotals\"", "method=\"computeStatsWindows\"")
+                .contains("spring_data_repository_invocations_seconds_bucket{")
+                .contains("repository_rows_sum{method=\"findAll\",repository=\"MediaAssetRepository\"} 5.0")
+                .contains("db_request_statements_count{uri=\"/ads-reports/{id}/stats\"}")
+                .contains("hibernate_query_executions_total", "hibernate_entities_loads_total");
+    }
+
+    @Test
+    void statementsPerRequestDoNotGrowWithTheNumberOfAds() throws Exception {
+        long fiveAds = statementsOfListPage();
+
+        for (int ad = 6; ad <= 25; ad++) {
+            jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (?, ?, 'ACME', 10)",
+                    ad, "Ad " + ad);
+        }
+
+        assertThat(fiveAds).isPositive();
+        assertThat(statementsOfListPage()).isEqualTo(fiveAds);
+    }
+
+    private long statementsOfListPage() throws Exception {
+        double before = statementsTotal();
+        mockMvc.perform(get("/ads-reports")).andExpect(status().isOk());
+        return Math.round(statementsTotal() - before);
+    }
+
+    private double statementsTotal() {
+        DistributionSummary summary = meterRegistry.find("db.request.statements").tag("uri", "/ads-reports").summary();
+        return summary != null ? summary.totalAmount() : 0;
+    }
+}
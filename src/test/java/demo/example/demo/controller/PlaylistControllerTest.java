@@ -0,0 +1,132 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import demo.example.demo.service.PlaylistService;
+import demo.example.demo.service.ScheduleIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class PlaylistControllerTest {
+
+    private static final UUID LOBBY = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OFF = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private PlaylistService playlistService;
+
+    private LocalDate today;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active, uuid) VALUES (1, 'Lobby', true, ?), (2, 'Off', false, ?)",
+                LOBBY, OFF);
+
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, url, ordernr, duration) VALUES " +
+                "(1, 'Third', 'u1', 3, 10), (2, 'First', 'u2', 1, 15), (3, 'Unordered', 'u3', null, 20)");
+
+        today = LocalDate.now();
+
+        // ad 1 twice on the lobby: plays add up, both windows listed
+        data.schedule(1, 1, today, today, LocalTime.of(8, 0), LocalTime.of(12, 0), 4);
+        data.schedule(1, 1, today.minusDays(2), today.plusDays(2), LocalTime.of(14, 0), LocalTime.of(18, 0), 6);
+        data.schedule(2, 1, today, today.plusDays(1), null, null, 2);
+        data.schedule(3, 1, today, today, null, null, 1);
+        // ends yesterday, not played
+        data.schedule(2, 1, today.minusDays(5), today.minusDays(1), null, null, 100);
+        // inactive screen
+        data.schedule(1, 2, today, today, null, null, 3);
+
+        scheduleIndex.refresh();
+        playlistService.refresh();
+    }
+
+    @Test
+    void playlistIsOrderedAndSumsPlaysPerAsset() throws Exception {
+        mockMvc.perform(get("/api/screens/{uuid}/playlist", LOBBY))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.screenId").value(1))
+                .andExpect(jsonPath("$.day").value(today.toString()))
+                .andExpect(jsonPath("$.items", hasSize(3)))
+                .andExpect(jsonPath("$.items[0].mediaAssetId").value(2))
+                .andExpect(jsonPath("$.items[0].playsPerDay").value(2.0))
+                .andExpect(jsonPath("$.items[1].mediaAssetId").value(1))
+                .andExpect(jsonPath("$.items[1].playsPerDay").value(10.0))
+                .andExpect(jsonPath("$.items[1].windows", hasSize(2)))
+                .andExpect(jsonPath("$.items[1].windows[0].from").value("08:00:00"))
+                .andExpect(jsonPath("$.items[2].mediaAssetId").value(3))
+                // 15*2 + 10*10 + 20*1
+                .andExpect(jsonPath("$.totalSeconds").value(150));
+
+        mockMvc.perform(get("/api/screens/{uuid}/playlist", LOBBY)
+                        .param("day", today.plusDays(2).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].playsPerDay").value(6.0));
+
+        mockMvc.perform(get("/api/screens/{uuid}/playlist", OFF))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)));
+    }
+
+    @Test
+    void answersNotModifiedUntilTheScheduleChanges() throws Exception {
+        String eTag = mockMvc.perform(get("/api/screens/{uuid}/playlist", LOBBY))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/screens/{uuid}/playlist", LOBBY)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        jdbc.update("UPDATE \"Schedule\" SET duration = 8 WHERE mediaassetid = 2 AND screenid = 1 AND todate >= ?", today);
+        scheduleIndex.refresh(); // the index event rebuilds the screen's playlists
+
+        String changed = mockMvc.perform(get("/api/screens/{uuid}/playlist", LOBBY)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].playsPerDay").value(8.0))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(changed).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void unknownScreenIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/screens/{uuid}/playlist", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+}
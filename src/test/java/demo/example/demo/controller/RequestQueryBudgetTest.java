@@ -0,0 +1,146 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import demo.example.demo.config.QueryBudget;
+import demo.example.demo.config.RequestQueryStats;
+import demo.example.demo.entity.MediaAsset;
+import demo.example.demo.repositories.ScreenRepository;
+import demo.example.demo.service.AdStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Query budgets of the reporting pages, with 25 ads played on 30 screens:
+ * none of them may grow with the number of ads, screens or events. The test
+ * profile runs QueryBudget in fail mode, so an N+1 fails the request itself.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class RequestQueryBudgetTest {
+
+    private static final int ADS = 25;
+    private static final int SCREENS = 30;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @Autowired
+    private ScreenRepository screenRepository;
+
+    @MockitoSpyBean
+    private AdStatsService adStatsService;
+
+    @BeforeEach
+    void seed() {
+        reset(adStatsService);
+
+        for (int screen = 1; screen <= SCREENS; screen++) {
+            jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (?, ?, true)", screen, "Screen #" + screen);
+        }
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 9, 0);
+        for (int ad = 1; ad <= ADS; ad++) {
+            jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (?, ?, 'ACME', 10)",
+                    ad, "Ad " + ad);
+            data.schedule(ad, 1, start.toLocalDate(), start.toLocalDate().plusDays(30), 0);
+        }
+        for (int screen = 1; screen <= SCREENS; screen++) {
+            data.play(1, screen, start.plusMinutes(screen), 10);
+        }
+    }
+
+    @Test
+    void adListStaysWithinItsBudget() throws Exception {
+        MvcResult result = mockMvc.perform(get("/ads-reports"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        RequestQueryStats stats = stats(result);
+        assertThat(stats.route()).isEqualTo("GET /ads-reports");
+        assertThat(stats.statements()).isLessThanOrEqualTo(3);
+        assertThat(stats.entitiesLoaded()).isEqualTo(ADS);
+        assertThat(stats.mostRepeated().getValue()).isEqualTo(1);
+    }
+
+    @Test
+    void statsPageStaysWithinItsBudget() throws Exception {
+        MvcResult result = mockMvc.perform(get("/ads-reports/1/stats").param("day", "2025-04-01"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        RequestQueryStats stats = stats(result);
+        assertThat(stats.statements()).isLessThanOrEqualTo(8);
+        // the ad, read by the page and by its lifetime totals on their own threads
+        assertThat(stats.entitiesLoaded()).isLessThanOrEqualTo(2);
+        assertThat(stats.mostRepeated().getValue()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void pdfExportStaysWithinItsBudget() throws Exception {
+        MvcResult started = mockMvc.perform(get("/ads-reports/1/stats/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        RequestQueryStats stats = stats(started);
+        assertThat(stats.statements()).isLessThanOrEqualTo(4);
+        assertThat(stats.entitiesLoaded()).isLessThanOrEqualTo(1);
+        assertThat(stats.mostRepeated().getValue()).isEqualTo(1);
+    }
+
+    @Test
+    void perRowLookupsFailTheRequest() {
+        // one screen lookup per ad, the shape of a lazy association read in a loop
+        doAnswer(invocation -> {
+            List<MediaAsset> ads = invocation.getArgument(0);
+            ads.forEach(ad -> screenRepository.findById(ad.getId()));
+            return Map.of();
+        }).when(adStatsService).computeLifetimeTotals(any());
+
+        assertThatThrownBy(() -> mockMvc.perform(get("/ads-reports")))
+                .rootCause()
+                .isInstanceOf(QueryBudget.BudgetExceededException.class)
+                .hasMessageContaining("GET /ads-reports prepared the same statement more than 10 times")
+                .hasMessageContaining("\"Screen\" s1_0 where s1_0.id=?");
+    }
+
+    @Test
+    void shapesFoldLiteralsAndInLists() {
+        assertThat(QueryBudget.shape("select s1_0.id from \"Screen\" s1_0\n  where s1_0.id in (?, ?,?) and s1_0.name = 'Lobby' and s1_0.id > 42"))
+                .isEqualTo("select s1_0.id from \"Screen\" s1_0 where s1_0.id in (?) and s1_0.name = ? and s1_0.id > ?");
+    }
+
+    private static RequestQueryStats stats(MvcResult result) {
+        return (RequestQueryStats) result.getRequest().getAttribute(RequestQueryStats.ATTRIBUTE);
+    }
+}
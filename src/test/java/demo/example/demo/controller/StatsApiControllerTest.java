@@ -0,0 +1,163 @@
+package demo.example.demo.controller;
+
+import demo.example.demo.TestData;
+import demo.example.demo.service.EventLogRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static demo.example.demo.TestData.at;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class StatsApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @Autowired
+    private EventLogRollupService rollupService;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true), (2, 'Entrance', true)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (1, 'Promo', 10), (2, 'Teaser', 5)");
+
+        data.play(1, 2, at("2025-01-02 10:00:00"), 10, "k1");
+        data.play(1, 1, at("2025-01-02 11:00:00"), 20, "k1");
+        data.play(1, null, at("2025-01-02 12:00:00"), 5, "k1");
+        data.play(2, 1, at("2025-01-02 13:00:00"), 7, "k2");
+        data.play(2, 1, at("2025-01-03 13:00:00"), 7, "k2");
+    }
+
+    @Test
+    void pagesThroughTheRowsWithTheKeysetCursor() throws Exception {
+        MvcResult first = body(get("/api/stats/daily?day=2025-01-02&limit=2"));
+
+        assertThat(lines(first)).containsExactly(
+                "{\"adId\":1,\"screenId\":null,\"totalSeconds\":5,\"playCount\":1}",
+                "{\"adId\":1,\"screenId\":1,\"totalSeconds\":20,\"playCount\":1}");
+
+        String link = first.getResponse().getHeader(HttpHeaders.LINK);
+        assertThat(link).contains("after=1.1").endsWith("rel=\"next\"");
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+
+        MvcResult second = body(get(next));
+        assertThat(lines(second)).containsExactly(
+                "{\"adId\":1,\"screenId\":2,\"totalSeconds\":10,\"playCount\":1}",
+                "{\"adId\":2,\"screenId\":1,\"totalSeconds\":7,\"playCount\":1}");
+
+        String last = second.getResponse().getHeader(HttpHeaders.LINK);
+        MvcResult third = body(get(last.substring(last.indexOf('<') + 1, last.indexOf('>'))));
+        assertThat(lines(third)).isEmpty();
+        assertThat(third.getResponse().getHeader(HttpHeaders.LINK)).isNull();
+    }
+
+    @Test
+    void filtersByAdScreenAndApiKey() throws Exception {
+        assertThat(lines(body(get("/api/stats/monthly").param("month", "2025-01").param("adId", "2"))))
+                .containsExactly("{\"adId\":2,\"screenId\":1,\"totalSeconds\":14,\"playCount\":2}");
+
+        assertThat(lines(body(get("/api/stats/weekly").param("day", "2025-01-01").param("screenId", "1"))))
+                .hasSize(2);
+
+        assertThat(lines(body(get("/api/stats/daily").param("day", "2025-01-02").param("apiKey", "k2"))))
+                .containsExactly("{\"adId\":2,\"screenId\":1,\"totalSeconds\":7,\"playCount\":1}");
+    }
+
+    @Test
+    void closedPeriodsAnswerConditionalRequests() throws Exception {
+        jdbc.update("UPDATE \"EventLog\" SET createdts = ?", at("2025-01-05 08:00:00"));
+
+        MvcResult first = body(get("/api/stats/daily").param("day", "2025-01-02"));
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotBlank();
+        assertThat(first.getResponse().getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(epochMilli("2025-01-05 08:00:00"));
+
+        mockMvc.perform(get("/api/stats/daily").param("day", "2025-01-02").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        // a player that was offline delivers events for that day, through any instance
+        data.event(1, 1, at("2025-01-02 18:00:00"), at("2025-01-02 18:00:10"), "k1", at("2025-02-01 09:00:00"));
+
+        MvcResult changed = body(get("/api/stats/daily").param("day", "2025-01-02").header(HttpHeaders.IF_NONE_MATCH, eTag));
+        String changedETag = changed.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changedETag).isNotEqualTo(eTag);
+        assertThat(changed.getResponse().getDateHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(epochMilli("2025-02-01 09:00:00"));
+
+        // folding the late events into the rollup keeps the validators
+        rollupService.refresh();
+        mockMvc.perform(get("/api/stats/daily").param("day", "2025-01-02").header(HttpHeaders.IF_NONE_MATCH, changedETag))
+                .andExpect(status().isNotModified());
+
+        // other days keep their validators
+        MvcResult otherDay = body(get("/api/stats/daily").param("day", "2025-01-03"));
+        mockMvc.perform(get("/api/stats/daily").param("day", "2025-01-03")
+                        .header(HttpHeaders.IF_NONE_MATCH, otherDay.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void openPeriodsAreNotCacheable() throws Exception {
+        data.play(1, 1, at(LocalDate.now() + " 00:00:01"), 3, "k1");
+
+        MvcResult today = body(get("/api/stats/daily").param("day", LocalDate.now().toString()));
+
+        assertThat(lines(today)).hasSize(1);
+        assertThat(today.getResponse().getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(today.getResponse().getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
+    }
+
+    @Test
+    void rejectsBadPagingParameters() throws Exception {
+        mockMvc.perform(get("/api/stats/daily").param("day", "2025-01-02").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/stats/daily").param("day", "2025-01-02").param("after", "oops"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MvcResult body(RequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+    }
+
+    private static long epochMilli(String localTime) {
+        return at(localTime).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static List<String> lines(MvcResult result) throws Exception {
+        String body = result.getResponse().getContentAsString();
+        return body.isEmpty() ? List.of() : List.of(body.split("\n"));
+    }
+}
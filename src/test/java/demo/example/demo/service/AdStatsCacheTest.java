@@ -0,0 +1,154 @@
+package demo.example.demo.service;
+
+import demo.example.demo.TestData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(properties = {"stats.cache.enabled=true", "stats.cache.open-window-ttl=300ms"})
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class AdStatsCacheTest {
+
+    @Autowired
+    private AdStatsService adStatsService;
+
+    @Autowired
+    private AdStatsCache statsCache;
+
+    @Autowired
+    private EventLogRollupService rollupService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @BeforeEach
+    void seed() {
+        statsCache.invalidateAll();
+
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (1, 'Promo', 10), (2, 'Other', 10)");
+        data.play(1, 1, LocalDateTime.of(2025, 3, 1, 10, 0), 10);
+    }
+
+    @Test
+    void closedWindowsAreServedFromTheCacheUntilNewEventsArrive() {
+        double hitsBefore = hits();
+
+        assertThat(adStatsService.computeTotalStats(1).getTotalPlays()).isEqualTo(1);
+        assertThat(adStatsService.computeStatsForRange(1, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)))
+                .singleElement().extracting("plays").isEqualTo(1L);
+
+        data.play(1, 1, LocalDateTime.of(2025, 3, 2, 10, 0), 10);
+
+        // still the cached values
+        assertThat(adStatsService.computeTotalStats(1).getTotalPlays()).isEqualTo(1);
+        assertThat(adStatsService.computeStatsForRange(1, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)))
+                .singleElement().extracting("plays").isEqualTo(1L);
+        assertThat(hits() - hitsBefore).isEqualTo(2);
+
+        // events for another ad leave ad 1 alone
+        eventPublisher.publishEvent(new EventLogAppendedEvent(Set.of(2), Set.of()));
+        assertThat(adStatsService.computeTotalStats(1).getTotalPlays()).isEqualTo(1);
+
+        eventPublisher.publishEvent(new EventLogAppendedEvent(Set.of(1), Set.of()));
+        assertThat(adStatsService.computeTotalStats(1).getTotalPlays()).isEqualTo(2);
+        assertThat(adStatsService.computeStatsForRange(1, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)))
+                .singleElement().extracting("plays").isEqualTo(2L);
+    }
+
+    @Test
+    void windowsIncludingTodayExpireWhileClosedOnesStay() {
+        LocalDate today = LocalDate.now();
+        LocalDate march = LocalDate.of(2025, 3, 1);
+        data.play(1, 1, today.atTime(0, 0, 1), 10);
+
+        assertThat(adStatsService.computeStatsForRange(1, today, today)).hasSize(1);
+        assertThat(adStatsService.computeStatsForRange(1, march, march)).hasSize(1);
+
+        data.play(1, 1, today.atTime(0, 0, 2), 10);
+        data.play(1, 1, march.atTime(12, 0), 10);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(adStatsService.computeStatsForRange(1, today, today))
+                        .singleElement().extracting("plays").isEqualTo(2L));
+
+        // within closed-window-ttl the closed window only changes through invalidation, here from the rollup refresh
+        assertThat(adStatsService.computeStatsForRange(1, march, march))
+                .singleElement().extracting("plays").isEqualTo(1L);
+
+        rollupService.refresh();
+        assertThat(adStatsService.computeStatsForRange(1, march, march))
+                .singleElement().extracting("plays").isEqualTo(2L);
+    }
+
+    @Test
+    void closedWindowsExpireWithoutAnAppendOnThisInstance() {
+        // another instance wrote the late events, this one sees no EventLogAppendedEvent
+        AdStatsCache cache = new AdStatsCache(new SimpleMeterRegistry(), true, 100,
+                Duration.ofSeconds(30), Duration.ofMillis(300));
+        AdStatsCache.Key key = AdStatsCache.Key.range(1, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+
+        assertThat(cache.<String>get(key, () -> "before the late events")).isEqualTo("before the late events");
+        assertThat(cache.<String>get(key, () -> "after the late events")).isEqualTo("before the late events");
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(cache.<String>get(key, () -> "after the late events")).isEqualTo("after the late events"));
+    }
+
+    @Test
+    void loadsOverlappingAnAppendAreNotKept() throws Exception {
+        AdStatsCache.Key key = AdStatsCache.Key.range(1, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch appended = new CountDownLatch(1);
+
+        CompletableFuture<String> load = CompletableFuture.supplyAsync(() -> statsCache.get(key, () -> {
+            loading.countDown();
+            try {
+                appended.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "before the append";
+        }));
+
+        loading.await(5, TimeUnit.SECONDS);
+        eventPublisher.publishEvent(new EventLogAppendedEvent(Set.of(1), Set.of()));
+        appended.countDown();
+        assertThat(load.get(5, TimeUnit.SECONDS)).isEqualTo("before the append");
+
+        assertThat(statsCache.<String>get(key, () -> "after the append")).isEqualTo("after the append");
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "adStats").tag("result", "hit")
+                .functionCounter().count();
+    }
+}
@@ -0,0 +1,187 @@
+package demo.example.demo.service;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.AdGlobalStats;
+import demo.example.demo.dto.AdLifetimeBounds;
+import demo.example.demo.dto.AdPerScreenStats;
+import demo.example.demo.dto.AdStatsDto;
+import demo.example.demo.dto.AdStatsWindows;
+import demo.example.demo.entity.MediaAsset;
+import demo.example.demo.repositories.MediaAssetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static demo.example.demo.TestData.at;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+@Transactional
+class AdStatsServiceTest {
+
+    @Autowired
+    private AdStatsService adStatsService;
+
+    @Autowired
+    private EventLogRollupService rollupService;
+
+    @Autowired
+    private MediaAssetRepository mediaAssetRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true), (2, '', true)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (1, 'Spring sale', 'ACME', 10)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, companyname, duration) VALUES (2, 'Unplayed', 'ACME', 10)");
+
+        data.event(1, 1, at("2025-01-01 10:00:00"), at("2025-01-01 10:00:10.900"));   // 10s (truncated)
+        data.event(1, 1, at("2025-01-02 10:00:00"), null);                            // open end -> 0s
+        data.event(1, 1, at("2025-01-02 11:00:00"), at("2025-01-02 11:00:30"));       // 30s
+        data.event(1, 2, at("2025-01-03 10:00:00"), at("2025-01-03 09:59:58.500"));   // negative -> 0s
+        data.event(1, 2, at("2025-01-10 10:00:00"), at("2025-01-10 10:00:20"));       // 20s
+        data.event(1, null, at("2025-01-04 23:59:50"), at("2025-01-05 00:00:20"));    // no screen: totals only
+        data.event(1, 2, null, null);                                                 // no start: counted as a play only
+    }
+
+    @Test
+    void lifetimeStatsAggregatePerScreen() {
+        AdGlobalStats stats = adStatsService.computeTotalStats(1);
+
+        assertThat(stats.getAdName()).isEqualTo("Spring sale");
+        assertThat(stats.getCompanyname()).isEqualTo("ACME");
+        assertThat(stats.getTotalPlays()).isEqualTo(7);
+        assertThat(stats.getTotalSeconds()).isEqualTo(90);
+        assertThat(stats.getLifetimeFrom()).isEqualTo(LocalDate.of(2025, 1, 1));
+        assertThat(stats.getLifetimeTo()).isEqualTo(LocalDate.of(2025, 1, 10));
+
+        List<AdPerScreenStats> perScreen = stats.getPerScreen();
+        assertThat(perScreen).extracting(AdPerScreenStats::getScreenId).containsExactly(1, 2);
+        assertThat(perScreen).extracting(AdPerScreenStats::getScreenName).containsExactly("Lobby", "Screen 2");
+        assertThat(perScreen).extracting(AdPerScreenStats::getPlays).containsExactly(3L, 2L);
+        assertThat(perScreen).extracting(AdPerScreenStats::getTotalSeconds).containsExactly(40L, 20L);
+    }
+
+    @Test
+    void lifetimeStatsWithoutEventsAreEmpty() {
+        AdGlobalStats stats = adStatsService.computeTotalStats(2);
+
+        assertThat(stats.getAdName()).isEqualTo("Unplayed");
+        assertThat(stats.getTotalPlays()).isZero();
+        assertThat(stats.getTotalSeconds()).isZero();
+        assertThat(stats.getLifetimeFrom()).isNull();
+        assertThat(stats.getPerScreen()).isEmpty();
+    }
+
+    @Test
+    void rangeStatsOnlyCountEventsStartingInsideTheRange() {
+        List<AdPerScreenStats> range = adStatsService.computeStatsForRange(
+                1, LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3));
+
+        assertThat(range).extracting(AdPerScreenStats::getScreenId).containsExactly(1, 2);
+        assertThat(range).extracting(AdPerScreenStats::getPlays).containsExactly(2L, 1L);
+        assertThat(range).extracting(AdPerScreenStats::getTotalSeconds).containsExactly(30L, 0L);
+    }
+
+    @Test
+    void rollupGivesTheSameStatsAsTheRawEvents() {
+        AdGlobalStats rawLifetime = adStatsService.computeTotalStats(1);
+        List<AdPerScreenStats> rawRange = adStatsService.computeStatsForRange(
+                1, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+        List<AdStatsDto> rawMonthly = adStatsService.getMonthlyStats(YearMonth.of(2025, 1), null, null);
+
+        assertThat(rollupService.refresh()).isEqualTo(7);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM \"EventLog\" e WHERE e.id > ?",
+                Long.class, rollupService.currentHighWaterMark())).isZero();
+
+        assertThat(adStatsService.computeTotalStats(1)).usingRecursiveComparison().isEqualTo(rawLifetime);
+        assertThat(adStatsService.computeStatsForRange(1, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)))
+                .usingRecursiveComparison().isEqualTo(rawRange);
+        assertThat(adStatsService.getMonthlyStats(YearMonth.of(2025, 1), null, null))
+                .containsExactlyInAnyOrderElementsOf(rawMonthly);
+
+        // new events land in the tail until the next refresh, and are folded into existing buckets
+        data.event(1, 1, at("2025-01-01 12:00:00"), at("2025-01-01 12:00:05"));
+        assertThat(adStatsService.computeTotalStats(1).getTotalSeconds()).isEqualTo(95);
+
+        assertThat(rollupService.refresh()).isEqualTo(1);
+        AdGlobalStats refreshed = adStatsService.computeTotalStats(1);
+        assertThat(refreshed.getTotalPlays()).isEqualTo(8);
+        assertThat(refreshed.getTotalSeconds()).isEqualTo(95);
+        assertThat(refreshed.getPerScreen()).extracting(AdPerScreenStats::getPlays).containsExactly(4L, 2L);
+        assertThat(jdbc.queryForObject("SELECT plays FROM \"EventLogDaily\" WHERE playday = DATE '2025-01-01'",
+                Long.class)).isEqualTo(2);
+    }
+
+    @Test
+    void lifetimeBoundsMatchTheLifetimeStats() {
+        AdLifetimeBounds raw = adStatsService.computeLifetimeBounds(1);
+        assertThat(raw).isEqualTo(new AdLifetimeBounds(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 10)));
+
+        rollupService.refresh();
+        assertThat(adStatsService.computeLifetimeBounds(1)).isEqualTo(raw);
+
+        // summary row + tail
+        data.event(1, 1, at("2025-02-01 10:00:00"), at("2025-02-01 10:00:05"));
+        AdGlobalStats lifetime = adStatsService.computeTotalStats(1);
+        assertThat(adStatsService.computeLifetimeBounds(1))
+                .isEqualTo(new AdLifetimeBounds(lifetime.getLifetimeFrom(), lifetime.getLifetimeTo()));
+
+        rollupService.refresh();
+        assertThat(adStatsService.computeLifetimeBounds(1).lifetimeTo()).isEqualTo(LocalDate.of(2025, 2, 1));
+
+        assertThat(adStatsService.computeLifetimeBounds(2)).isEqualTo(new AdLifetimeBounds(null, null));
+    }
+
+    @Test
+    void dailyStatsMatchTheRawNativeQuery() {
+        rollupService.refresh();
+        data.event(1, 2, at("2025-01-02 18:00:00"), at("2025-01-02 18:00:07.250"));
+
+        List<AdStatsDto> daily = adStatsService.getDailyStats(LocalDate.of(2025, 1, 2), null, null);
+
+        assertThat(daily).containsExactlyInAnyOrder(
+                new AdStatsDto(1L, 1L, 30L, 2L),
+                new AdStatsDto(1L, 2L, 7L, 1L));
+    }
+
+    @Test
+    void statsWindowsMatchTheSeparateComputations() {
+        LocalDate refDay = LocalDate.of(2025, 1, 2);
+
+        // half of the events in the rollup, half in the tail
+        rollupService.refresh();
+        data.event(1, 1, at("2025-01-02 20:00:00"), at("2025-01-02 20:00:12"));
+        data.event(1, 2, at("2025-01-20 08:00:00"), at("2025-01-20 08:00:03"));
+
+        MediaAsset ad = mediaAssetRepository.findById(1).orElseThrow();
+        AdStatsWindows windows = adStatsService.computeStatsWindows(ad, refDay);
+
+        assertThat(windows.global()).usingRecursiveComparison()
+                .isEqualTo(adStatsService.computeTotalStats(1));
+        assertThat(windows.dayStats()).usingRecursiveComparison()
+                .isEqualTo(adStatsService.computeStatsForRange(1, refDay, refDay));
+        assertThat(windows.weekStats()).usingRecursiveComparison()
+                .isEqualTo(adStatsService.computeStatsForRange(1, LocalDate.of(2024, 12, 30), LocalDate.of(2025, 1, 5)));
+        assertThat(windows.monthStats()).usingRecursiveComparison()
+                .isEqualTo(adStatsService.computeStatsForRange(1, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)));
+
+        assertThat(windows.dayStats()).extracting(AdPerScreenStats::getPlays).containsExactly(3L);
+    }
+}
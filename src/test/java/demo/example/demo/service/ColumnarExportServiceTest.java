@@ -0,0 +1,112 @@
+package demo.example.demo.service;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.RawEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "export.columnar.directory=target/columnar-export-test",
+        "export.columnar.settle-lag=0s",
+        "export.columnar.row-group-size=1000"})
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class ColumnarExportServiceTest {
+
+    private static final Path DIRECTORY = Path.of("target/columnar-export-test");
+    private static final LocalDate D = LocalDate.of(2025, 5, 1);
+
+    @Autowired
+    private ColumnarExportService columnarExportService;
+
+    @Autowired
+    private EventExportService eventExportService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @BeforeEach
+    void clean() throws IOException {
+        FileSystemUtils.deleteRecursively(DIRECTORY);
+    }
+
+    @Test
+    void exportsClosedDaysIncrementallyAndReadsBack() throws IOException {
+        LocalDateTime t = D.atTime(10, 0);
+        data.event(7, 1, t, t.plusSeconds(10), "k1", t);
+        data.event(7, null, t.plusNanos(123_000), null, null, t.plusMinutes(1));
+        data.event(null, 2, null, null, "k2", t.plusMinutes(2));
+        data.event(8, 1, D.minusDays(3).atTime(23, 0), D.minusDays(3).atTime(23, 0, 5), "k1", D.plusDays(1).atTime(0, 30));
+
+        // day D is closed, D + 1 not yet
+        List<Path> files = columnarExportService.exportClosedDays(D.plusDays(1).atTime(12, 0));
+        assertThat(files).extracting(p -> p.getFileName().toString()).containsExactly("eventlog-2025-05-01.evc");
+
+        List<RawEvent> expected = new ArrayList<>();
+        eventExportService.scanCreated(D.atStartOfDay(), D.plusDays(1).atStartOfDay(), expected::add);
+        assertThat(expected).hasSize(3);
+        assertThat(read(files.get(0))).containsExactlyElementsOf(expected);
+
+        // nothing new until the next day is over, then only that day
+        assertThat(columnarExportService.exportClosedDays(D.plusDays(1).atTime(23, 0))).isEmpty();
+        List<Path> next = columnarExportService.exportClosedDays(D.plusDays(2).atTime(0, 5));
+        assertThat(next).extracting(p -> p.getFileName().toString()).containsExactly("eventlog-2025-05-02.evc");
+        assertThat(read(next.get(0))).singleElement()
+                .satisfies(e -> assertThat(e.start()).isEqualTo(D.minusDays(3).atTime(23, 0)));
+
+        assertThat(Files.list(DIRECTORY)).hasSize(2);
+    }
+
+    @Test
+    void isAnOrderOfMagnitudeSmallerThanCsv() throws IOException {
+        LocalDateTime t = D.atTime(6, 0);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            LocalDateTime start = t.plusSeconds(i * 2L).plusNanos((i % 1000) * 1_000L);
+            rows.add(new Object[]{Timestamp.valueOf(start), Timestamp.valueOf(start.plusSeconds(5 + i % 26)),
+                    "key-" + (i % 3), 1 + (i * 31) % 40, 1, Timestamp.valueOf(start.plusSeconds(1))});
+        }
+        jdbc.batchUpdate("INSERT INTO \"EventLog\" (\"start\", \"end\", \"key\", screenid, mediaassetid, createdts)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+        Path file = columnarExportService.exportDay(D);
+
+        List<RawEvent> back = read(file);
+        assertThat(back).hasSize(20_000);
+        assertThat(back.get(19_999).start()).isEqualTo(t.plusSeconds(39_998).plusNanos(999_000));
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        eventExportService.export(1, D, D, EventExportService.Format.CSV, csv);
+        assertThat(Files.size(file) * 10).isLessThan(csv.size());
+    }
+
+    private static List<RawEvent> read(Path file) throws IOException {
+        List<RawEvent> events = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(file)) {
+            ColumnarEventFile.read(in, events::add);
+        }
+        return events;
+    }
+}
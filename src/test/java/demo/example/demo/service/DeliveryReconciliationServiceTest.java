@@ -0,0 +1,141 @@
+package demo.example.demo.service;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.ScheduleDeliveryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class DeliveryReconciliationServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 10);
+
+    @Autowired
+    private DeliveryReconciliationService reconciliationService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @MockitoSpyBean
+    private EventLogMarks marks;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true), (2, 'Hall', true)");
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (1, 'Ten', 10), (2, 'Twenty', 20)");
+
+        // two overlapping schedules of ad 1 on the lobby share its plays 1:3
+        data.schedule(1, 1, 1, TODAY.minusDays(3), TODAY.plusDays(5), null, null, 10);
+        data.schedule(2, 1, 1, TODAY.minusDays(3), TODAY.minusDays(1), null, null, 30);
+        data.schedule(3, 2, 2, TODAY.minusDays(2), TODAY.minusDays(1), null, null, 5);
+    }
+
+    @Test
+    void creditsEventsToSchedulesAndFlagsUnderDelivery() {
+        events(1, 1, TODAY.minusDays(3), 40);
+        events(1, 1, TODAY.minusDays(2), 4);
+        events(2, 2, TODAY.minusDays(2), 5);
+        events(1, 2, TODAY.minusDays(2), 7);     // no schedule of ad 1 on the hall
+
+        assertThat(reconciliationService.reconcile(TODAY)).isEqualTo(56);
+
+        List<ScheduleDeliveryDto> rows = reconciliationService.deliveries(TODAY.minusDays(3), TODAY, null, false);
+        assertThat(rows).hasSize(8); // 3 + 3 + 2 schedule days before today, nothing for today yet
+
+        assertRow(1, TODAY.minusDays(3), 10, 100, false);
+        assertRow(2, TODAY.minusDays(3), 30, 300, false);
+        assertRow(1, TODAY.minusDays(2), 1, 10, true);
+        assertRow(2, TODAY.minusDays(2), 3, 30, true);
+        assertRow(3, TODAY.minusDays(2), 5, 100, false);
+        assertRow(3, TODAY.minusDays(1), 0, 0, true);
+
+        ScheduleDeliveryDto planned = row(2, TODAY.minusDays(3));
+        assertThat(planned.plannedPlays()).isEqualTo(30.0);
+        assertThat(planned.plannedSeconds()).isEqualTo(300.0);
+        assertThat(planned.closed()).isTrue();
+
+        assertThat(reconciliationService.deliveries(TODAY.minusDays(3), TODAY, 2, true))
+                .extracting(ScheduleDeliveryDto::day)
+                .containsExactly(TODAY.minusDays(1));
+    }
+
+    @Test
+    void laterRunsOnlyProcessNewEvents() {
+        events(2, 2, TODAY.minusDays(2), 5);
+        reconciliationService.reconcile(TODAY);
+        assertThat(row(3, TODAY.minusDays(1)).underDelivered()).isTrue();
+
+        assertThat(reconciliationService.reconcile(TODAY)).isZero();
+
+        // late events for a closed day clear its flag, today's stay open
+        events(2, 2, TODAY.minusDays(1), 5);
+        events(1, 1, TODAY, 2);
+        assertThat(reconciliationService.reconcile(TODAY)).isEqualTo(7);
+
+        assertRow(3, TODAY.minusDays(1), 5, 100, false);
+        assertRow(3, TODAY.minusDays(2), 5, 100, false);
+
+        ScheduleDeliveryDto today = row(1, TODAY);
+        assertThat(today.deliveredPlays()).isEqualTo(2);
+        assertThat(today.closed()).isFalse();
+        assertThat(today.underDelivered()).isFalse();
+
+        // the next day closes today
+        reconciliationService.reconcile(TODAY.plusDays(1));
+        assertThat(row(1, TODAY).underDelivered()).isTrue();
+    }
+
+    @Test
+    void aRunBehindAnotherInstanceCreditsNothingTwice() {
+        events(2, 2, TODAY.minusDays(2), 5);
+        assertThat(reconciliationService.reconcile(TODAY)).isEqualTo(5);
+
+        // marks read before the other instance committed its run
+        doReturn(null).when(marks).lastId(DeliveryReconciliationService.EVENTS_STATE);
+        doReturn(TODAY.minusDays(3)).when(marks).lastDay(DeliveryReconciliationService.DAYS_STATE);
+
+        assertThat(reconciliationService.reconcile(TODAY)).isZero();
+        assertRow(3, TODAY.minusDays(2), 5, 100, false);
+        assertRow(3, TODAY.minusDays(1), 0, 0, true);
+    }
+
+    private void assertRow(int scheduleId, LocalDate day, long plays, long seconds, boolean underDelivered) {
+        ScheduleDeliveryDto row = row(scheduleId, day);
+        assertThat(row.deliveredPlays()).as("plays of schedule %d on %s", scheduleId, day).isEqualTo(plays);
+        assertThat(row.deliveredSeconds()).as("seconds of schedule %d on %s", scheduleId, day).isEqualTo(seconds);
+        assertThat(row.underDelivered()).as("flag of schedule %d on %s", scheduleId, day).isEqualTo(underDelivered);
+    }
+
+    private ScheduleDeliveryDto row(int scheduleId, LocalDate day) {
+        return reconciliationService.deliveries(day, day, null, false).stream()
+                .filter(r -> r.scheduleId() == scheduleId)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no row for schedule " + scheduleId + " on " + day));
+    }
+
+    // n plays of 10 s (ad 1) or 20 s (ad 2), one minute apart from 10:00
+    private void events(int adId, int screenId, LocalDate day, int n) {
+        for (int i = 0; i < n; i++) {
+            LocalDateTime start = day.atTime(10, 0).plusMinutes(i);
+            data.play(adId, screenId, start, adId * 10L);
+        }
+    }
+}
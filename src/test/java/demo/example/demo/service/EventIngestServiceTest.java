@@ -0,0 +1,138 @@
+package demo.example.demo.service;
+
+import demo.example.demo.dto.EventIngestDto;
+import demo.example.demo.repositories.MediaAssetRepository;
+import demo.example.demo.repositories.ScreenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Write path of the ingest buffer. The service is built by hand, without its
+ * flusher thread, so that {@link EventIngestService#flush} writes on the test
+ * thread: batches of 10 events, 3 INSERT statements of at most 4 rows each.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class EventIngestServiceTest {
+
+    private static final UUID SCREEN = UUID.fromString("6f1c2a9e-3b8d-4a51-9a7e-2d0c5b1e7f10");
+    private static final UUID UNKNOWN = UUID.fromString("00000000-0000-0000-0000-000000000000");
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ScreenRepository screenRepository = mock(ScreenRepository.class);
+    private final MediaAssetRepository mediaAssetRepository = mock(MediaAssetRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger statements = new AtomicInteger();
+
+    private JdbcTemplate failingJdbc;
+    private EventIngestService ingestService;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("INSERT INTO \"Screen\" (id, name, active, uuid) VALUES (1, 'Lobby', true, ?)", SCREEN);
+        jdbc.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (7, 'Promo', 10)");
+
+        when(screenRepository.findIdByUuid(any())).thenReturn(Optional.empty());
+        when(screenRepository.findIdByUuid(SCREEN)).thenReturn(Optional.of(1));
+        when(mediaAssetRepository.existsById(anyInt())).thenReturn(true);
+
+        failingJdbc = spy(jdbc);
+        ingestService = new EventIngestService(failingJdbc, transactionTemplate, screenRepository,
+                mediaAssetRepository, event -> { }, meterRegistry,
+                100, 10, 4, 500, 100, 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void aRetriedBatchIsWrittenOnce() throws Exception {
+        failStatements(Set.of(2));
+        ingestService.offer(plays(SCREEN, 10));
+
+        ingestService.flush();
+
+        // the first attempt wrote 4 rows before failing, the retry wrote all 10 again
+        assertThat(statements).hasValue(5);
+        assertThat(rows()).isEqualTo(10);
+        assertThat(dropped()).isZero();
+    }
+
+    @Test
+    void aDroppedBatchLeavesNoRowsAndIsCountedWhole() throws Exception {
+        failStatements(Set.of(3, 6, 9));
+        ingestService.offer(plays(SCREEN, 10));
+
+        ingestService.flush();
+
+        assertThat(rows()).isZero();
+        assertThat(dropped()).isEqualTo(10);
+    }
+
+    @Test
+    void unknownScreensAreLookedUpOnce() throws Exception {
+        assertThat(ingestService.offer(plays(UNKNOWN, 2)).rejected()).isEqualTo(2);
+        assertThat(ingestService.offer(plays(UNKNOWN, 2)).rejected()).isEqualTo(2);
+        assertThat(ingestService.offer(plays(SCREEN, 2)).accepted()).isEqualTo(2);
+
+        verify(screenRepository, times(1)).findIdByUuid(UNKNOWN);
+    }
+
+    // fails the INSERT statements with these 1-based numbers, counted across attempts
+    private void failStatements(Set<Integer> failing) {
+        doAnswer(invocation -> {
+            if (failing.contains(statements.incrementAndGet())) {
+                throw new DataAccessResourceFailureException("connection lost at statement " + statements.get());
+            }
+            return invocation.callRealMethod();
+        }).when(failingJdbc).update(anyString(), any(Object[].class), any(int[].class));
+    }
+
+    private static List<EventIngestDto> plays(UUID screen, int n) {
+        List<EventIngestDto> events = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LocalDateTime start = LocalDateTime.of(2025, 5, 1, 10, 0).plusMinutes(i);
+            events.add(new EventIngestDto(screen, 7, start, start.plusSeconds(10), "k"));
+        }
+        return events;
+    }
+
+    private long rows() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM \"EventLog\"", Long.class);
+    }
+
+    private double dropped() {
+        return meterRegistry.counter("eventlog.ingest.events", "result", "dropped").count();
+    }
+}
@@ -0,0 +1,86 @@
+package demo.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class QueryLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryLimiter limiter = new QueryLimiter(registry, 2, 2, Duration.ofMillis(300));
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void saturatedHeavyReadsDoNotBlockCheapOnes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            pool.submit(() -> limiter.heavy(() -> hold(release)));
+        }
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.available(QueryLimiter.Kind.HEAVY) == 0);
+
+        // a third heavy read queues, cheap reads go straight through
+        Future<Boolean> queued = pool.submit(() -> limiter.heavy(() -> true));
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.waiting(QueryLimiter.Kind.HEAVY) == 1);
+        assertThat(limiter.cheap(() -> "list page")).isEqualTo("list page");
+
+        release.countDown();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(registry.get("db.limiter.wait").tag("kind", "heavy").timer().count()).isEqualTo(3);
+        assertThat(registry.get("db.limiter.wait").tag("kind", "cheap").timer().count()).isEqualTo(1);
+        // the holders release their permits after the queued read got one
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.available(QueryLimiter.Kind.HEAVY) == 2);
+    }
+
+    @Test
+    void waitingLongerThanTheTimeoutFails() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            pool.submit(() -> limiter.heavy(() -> hold(release)));
+        }
+        await().atMost(Duration.ofSeconds(5)).until(() -> limiter.available(QueryLimiter.Kind.HEAVY) == 0);
+
+        assertThatThrownBy(() -> limiter.heavy(() -> true))
+                .isInstanceOf(QueryLimiter.BusyException.class);
+        assertThat(registry.get("db.limiter.rejected").tag("kind", "heavy").counter().count()).isEqualTo(1);
+
+        release.countDown();
+    }
+
+    @Test
+    void permitsAreReentrantPerThread() {
+        QueryLimiter single = new QueryLimiter(new SimpleMeterRegistry(), 1, 1, Duration.ofMillis(100));
+
+        // a unit of work holding the permit can run its reads without waiting for itself
+        String result = single.heavy(() -> single.heavy(() -> single.cheap(() -> "nested")));
+
+        assertThat(result).isEqualTo("nested");
+        assertThat(single.available(QueryLimiter.Kind.HEAVY)).isEqualTo(1);
+        assertThat(single.available(QueryLimiter.Kind.CHEAP)).isEqualTo(1);
+    }
+
+    private static boolean hold(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
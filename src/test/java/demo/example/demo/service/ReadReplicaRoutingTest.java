@@ -0,0 +1,107 @@
+package demo.example.demo.service;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.AdPerScreenStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two H2 databases stand in for the primary and its replica. They are seeded
+ * with different rows, so every read shows which one served it.
+ */
+@SpringBootTest(properties = {
+        "db.replica.enabled=true",
+        "db.replica.max-lag=1h",
+        "db.replica.pool.jdbc-url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "db.replica.pool.username=sa",
+        "db.replica.pool.password="
+})
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+            + "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1;NON_KEYWORDS=END";
+
+    private static final LocalDate PAST_DAY = LocalDate.of(2025, 1, 2);
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private AdStatsService adStatsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void seed() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replica.getDataSource());
+
+        for (JdbcTemplate db : new JdbcTemplate[] {jdbc, replica}) {
+            new ResourceDatabasePopulator(new ClassPathResource("clean-tables.sql")).execute(db.getDataSource());
+            db.update("INSERT INTO \"Screen\" (id, name, active) VALUES (1, 'Lobby', true)");
+            db.update("INSERT INTO \"MediaAsset\" (id, name, duration) VALUES (1, 'Promo', 10)");
+        }
+
+        // primary: one old play and one a minute ago; the replica has not caught up on the
+        // recent one, and (to tell them apart) carries two old plays instead of one
+        new TestData(jdbc).play(1, 1, PAST_DAY.atTime(10, 0), 10);
+        new TestData(jdbc).play(1, 1, LocalDateTime.now().minusMinutes(1), 7);
+        new TestData(replica).play(1, 1, PAST_DAY.atTime(10, 0), 10);
+        new TestData(replica).play(1, 1, PAST_DAY.atTime(11, 0), 20);
+    }
+
+    @Test
+    void closedWindowsAreReadFromTheReplica() {
+        assertThat(adStatsService.computeStatsForRange(1, PAST_DAY, PAST_DAY))
+                .singleElement()
+                .extracting(AdPerScreenStats::getPlays, AdPerScreenStats::getTotalSeconds)
+                .containsExactly(2L, 30L);
+    }
+
+    @Test
+    void windowsWithinTheLagAreReadFromThePrimary() {
+        LocalDate today = LocalDate.now();
+        assertThat(adStatsService.computeStatsForRange(1, today.minusDays(1), today))
+                .singleElement()
+                .extracting(AdPerScreenStats::getPlays)
+                .isEqualTo(1L);
+
+        assertThat(adStatsService.computeTotalStats(1).getTotalPlays()).isEqualTo(2);
+        assertThat(adStatsService.computeLifetimeBounds(1).lifetimeTo()).isEqualTo(today);
+    }
+
+    @Test
+    void onlyReadOnlyTransactionsAreRouted() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        String count = "SELECT COUNT(*) FROM \"EventLog\" WHERE \"start\" < ?";
+        Timestamp before = Timestamp.valueOf(PAST_DAY.plusDays(1).atStartOfDay());
+
+        Long onReplica = readOnly.execute(tx -> jdbc.queryForObject(count, Long.class, before));
+        Long onPrimary = readWrite.execute(tx -> jdbc.queryForObject(count, Long.class, before));
+
+        assertThat(onReplica).isEqualTo(2);
+        assertThat(onPrimary).isEqualTo(1);
+        assertThat(jdbc.queryForObject(count, Long.class, before)).isEqualTo(1);
+    }
+}
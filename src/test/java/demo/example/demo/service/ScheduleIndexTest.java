@@ -0,0 +1,126 @@
+package demo.example.demo.service;
+
+import demo.example.demo.TestData;
+import demo.example.demo.dto.ScheduleEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Sql("/clean-tables.sql")
+class ScheduleIndexTest {
+
+    private static final LocalDate D = LocalDate.of(2025, 6, 10);
+
+    @Autowired
+    private ScheduleIndex scheduleIndex;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private TestData data;
+
+    @BeforeEach
+    void seed() {
+        scheduleIndex.refresh();
+    }
+
+    @Test
+    void answersActiveSchedulesAndAdStatus() {
+        data.schedule(1, 1, 10, D.minusDays(5), D.plusDays(5), LocalTime.of(8, 0), LocalTime.of(12, 0), 5);
+        data.schedule(2, 2, 10, D.plusDays(1), D.plusDays(9), null, null, 5);
+        data.schedule(3, 3, 11, D.minusDays(20), D.minusDays(1), null, null, 5);
+        data.schedule(4, 1, 11, null, null, LocalTime.of(18, 0), null, 5);   // open dates, evenings
+
+        assertThat(scheduleIndex.refresh()).isEqualTo(4);
+
+        assertThat(ids(scheduleIndex.activeForScreen(10, D.atTime(9, 0)))).containsExactly(1);
+        assertThat(scheduleIndex.activeForScreen(10, D.atTime(13, 0))).isEmpty();
+        assertThat(ids(scheduleIndex.forScreenOn(10, D.plusDays(2)))).containsExactlyInAnyOrder(1, 2);
+        assertThat(ids(scheduleIndex.activeForScreen(11, D.atTime(19, 0)))).containsExactly(4);
+
+        assertThat(scheduleIndex.adStatus(1, D.atTime(9, 0))).isEqualTo(ScheduleIndex.ACTIVE);
+        assertThat(scheduleIndex.adStatus(2, D.atTime(9, 0))).isEqualTo(ScheduleIndex.SCHEDULED);
+        assertThat(scheduleIndex.adStatus(3, D.atTime(9, 0))).isEqualTo(ScheduleIndex.EXPIRED);
+        assertThat(scheduleIndex.adStatus(99, D.atTime(9, 0))).isEqualTo(ScheduleIndex.INACTIVE);
+    }
+
+    @Test
+    void refreshOnlyPicksUpChanges() {
+        data.schedule(1, 1, 10, D.minusDays(5), D.plusDays(5), null, null, 5);
+        data.schedule(2, 2, 10, D.minusDays(5), D.plusDays(5), null, null, 5);
+        scheduleIndex.refresh();
+
+        assertThat(scheduleIndex.refresh()).isZero();
+
+        jdbc.update("UPDATE \"Schedule\" SET todate = ? WHERE id = 1", D.minusDays(1));
+        jdbc.update("DELETE FROM \"Schedule\" WHERE id = 2");
+        data.schedule(3, 2, 12, D, D, null, null, 5);
+
+        assertThat(scheduleIndex.refresh()).isEqualTo(3);
+        assertThat(scheduleIndex.size()).isEqualTo(2);
+        assertThat(scheduleIndex.forScreenOn(10, D)).isEmpty();
+        assertThat(ids(scheduleIndex.forScreenOn(12, D))).containsExactly(3);
+        assertThat(scheduleIndex.adStatus(1, D.atStartOfDay())).isEqualTo(ScheduleIndex.EXPIRED);
+        assertThat(ids(scheduleIndex.forAdOn(2, D))).containsExactly(3);
+    }
+
+    @Test
+    void intervalTreeMatchesALinearScan() {
+        Random random = new Random(42);
+        List<ScheduleEntry> all = new ArrayList<>();
+
+        for (int id = 1; id <= 400; id++) {
+            int screen = 1 + random.nextInt(3);
+            LocalDate from = random.nextInt(10) == 0 ? null : D.plusDays(random.nextInt(120) - 60);
+            LocalDate to = random.nextInt(10) == 0 ? null
+                    : (from != null ? from : D).plusDays(random.nextInt(30));
+            data.schedule(id, id % 7, screen, from, to, null, null, 5);
+            all.add(new ScheduleEntry(id, screen, id % 7, from, to, null, null, 5.0));
+        }
+        scheduleIndex.refresh();
+
+        for (int offset = -70; offset <= 100; offset += 3) {
+            LocalDate day = D.plusDays(offset);
+            for (int screen = 1; screen <= 3; screen++) {
+                int s = screen;
+                List<Integer> expected = all.stream()
+                        .filter(e -> e.screenId() == s && e.coversDay(day))
+                        .map(ScheduleEntry::id)
+                        .toList();
+                assertThat(ids(scheduleIndex.forScreenOn(screen, day)))
+                        .as("screen %d on %s", screen, day)
+                        .containsExactlyInAnyOrderElementsOf(expected);
+
+                LocalDate weekEnd = day.plusDays(6);
+                List<Integer> expectedWeek = all.stream()
+                        .filter(e -> e.screenId() == s
+                                && (e.fromdate() == null || !e.fromdate().isAfter(weekEnd))
+                                && (e.todate() == null || !e.todate().isBefore(day)))
+                        .map(ScheduleEntry::id)
+                        .toList();
+                assertThat(ids(scheduleIndex.forScreenBetween(screen, day, weekEnd)))
+                        .as("screen %d from %s to %s", screen, day, weekEnd)
+                        .containsExactlyInAnyOrderElementsOf(expectedWeek);
+            }
+        }
+    }
+
+    private static List<Integer> ids(List<ScheduleEntry> entries) {
+        return entries.stream().map(ScheduleEntry::id).toList();
+    }
+}
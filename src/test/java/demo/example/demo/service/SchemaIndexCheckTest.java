@@ -0,0 +1,50 @@
+package demo.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaIndexCheckTest {
+
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "CREATE (?:UNIQUE )?INDEX (?:CONCURRENTLY )?IF NOT EXISTS \"([^\"]+)\"\\s+ON \"([^\"]+)\"");
+
+    @Test
+    void everyExpectedIndexIsCreatedByAMigration() throws IOException {
+        Map<String, Boolean> created = new HashMap<>();
+        for (Resource script : new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*.sql")) {
+            Matcher m = CREATE_INDEX.matcher(script.getContentAsString(StandardCharsets.UTF_8));
+            while (m.find()) created.put(m.group(2) + "." + m.group(1), true);
+        }
+
+        assertThat(SchemaIndexCheck.problems(created)).isEmpty();
+    }
+
+    @Test
+    void reportsMissingAndInvalidIndexes() {
+        Map<String, Boolean> existing = new HashMap<>();
+        for (SchemaIndexCheck.ExpectedIndex index : SchemaIndexCheck.EXPECTED) {
+            existing.put(index.table() + "." + index.name(), true);
+        }
+        existing.remove("EventLog.EventLog_start_brin");
+        existing.put("Schedule.Schedule_screen_dates_idx", false);
+        // right name on the wrong table does not count
+        existing.remove("Schedule.Schedule_ad_dates_idx");
+        existing.put("EventLog.Schedule_ad_dates_idx", true);
+
+        assertThat(SchemaIndexCheck.problems(existing))
+                .hasSize(3)
+                .anySatisfy(p -> assertThat(p).contains("\"EventLog_start_brin\"").contains("missing"))
+                .anySatisfy(p -> assertThat(p).contains("\"Schedule_screen_dates_idx\"").contains("INVALID"))
+                .anySatisfy(p -> assertThat(p).contains("\"Schedule_ad_dates_idx\"").contains("missing"));
+    }
+}
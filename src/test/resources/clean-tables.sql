@@ -0,0 +1,10 @@
+-- Empties every table the tests write to; run before each test with @Sql("/clean-tables.sql")
+DELETE FROM "ScheduleDelivery";
+DELETE FROM "EventLogDaily";
+DELETE FROM "EventLogAdSummary";
+DELETE FROM "EventLogDaySummary";
+DELETE FROM "EventLogRollupState";
+DELETE FROM "EventLog";
+DELETE FROM "Schedule";
+DELETE FROM "MediaAsset";
+DELETE FROM "Screen";
@@ -0,0 +1,96 @@
+-- Mirror of the production tables the entities map to (PostgreSQL "point" kept as text)
+CREATE TABLE IF NOT EXISTS dimension (
+    id     INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    width  INTEGER,
+    height INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS "Screen" (
+    id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255),
+    address     VARCHAR(255),
+    description VARCHAR(255),
+    location    VARCHAR(255),
+    active      BOOLEAN,
+    uuid        UUID,
+    dimensionid INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS "MediaAsset" (
+    id          INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    url         VARCHAR(1024),
+    name        VARCHAR(255),
+    mimetype    VARCHAR(255),
+    companyname VARCHAR(255),
+    filename    VARCHAR(255),
+    description VARCHAR(1024),
+    ordernr     INTEGER,
+    duration    DOUBLE PRECISION
+);
+
+CREATE TABLE IF NOT EXISTS "Schedule" (
+    id           INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    fromdate     DATE,
+    todate       DATE,
+    fromtime     TIME,
+    totime       TIME,
+    duration     DOUBLE PRECISION,
+    uuid         UUID,
+    screenid     INTEGER,
+    mediaassetid INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS "EventLog" (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    "start"      TIMESTAMP,
+    "end"        TIMESTAMP,
+    "key"        VARCHAR(255),
+    screenid     INTEGER,
+    mediaassetid INTEGER,
+    createdts    TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS "EventLogDaily" (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    mediaassetid  INTEGER NOT NULL,
+    screenid      INTEGER,
+    playday       DATE,
+    "key"         VARCHAR(255),
+    plays         BIGINT DEFAULT 0 NOT NULL,
+    seconds       BIGINT DEFAULT 0 NOT NULL,
+    epoch_seconds DOUBLE PRECISION DEFAULT 0 NOT NULL,
+    first_start   TIMESTAMP,
+    last_end      TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS "EventLogRollupState" (
+    name         VARCHAR(64) PRIMARY KEY,
+    last_id      BIGINT,
+    last_day     DATE,
+    refreshed_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS "EventLogAdSummary" (
+    mediaassetid INTEGER PRIMARY KEY,
+    first_start  TIMESTAMP,
+    last_end     TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS "EventLogDaySummary" (
+    playday    DATE PRIMARY KEY,
+    changed_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS "ScheduleDelivery" (
+    schedule_id       INTEGER NOT NULL,
+    playday           DATE NOT NULL,
+    mediaassetid      INTEGER NOT NULL,
+    screenid          INTEGER,
+    planned_plays     DOUBLE PRECISION DEFAULT 0 NOT NULL,
+    planned_seconds   DOUBLE PRECISION DEFAULT 0 NOT NULL,
+    delivered_plays   BIGINT DEFAULT 0 NOT NULL,
+    delivered_seconds BIGINT DEFAULT 0 NOT NULL,
+    closed            BOOLEAN DEFAULT FALSE NOT NULL,
+    under_delivered   BOOLEAN DEFAULT FALSE NOT NULL,
+    PRIMARY KEY (schedule_id, playday)
+);